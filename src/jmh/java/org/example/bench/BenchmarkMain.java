@@ -0,0 +1,25 @@
+package org.example.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Запуск бенчмарков: пропускная способность + gc-профайлер (скорость аллокаций).
+ * Аргумент — регулярка по именам бенчмарков (по умолчанию все).
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*";
+
+        Options opt = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
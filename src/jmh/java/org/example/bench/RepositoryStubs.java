@@ -0,0 +1,44 @@
+package org.example.bench;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Заглушки Spring Data репозиториев для бенчмарков: без БД и без Spring-контекста,
+ * методы отвечают заранее подготовленными данными.
+ */
+public final class RepositoryStubs<R> {
+
+    private final Class<R> type;
+    private final Map<String, Function<Object[], Object>> answers = new HashMap<String, Function<Object[], Object>>();
+
+    private RepositoryStubs(Class<R> type) {
+        this.type = type;
+    }
+
+    public static <R> RepositoryStubs<R> of(Class<R> type) {
+        return new RepositoryStubs<R>(type);
+    }
+
+    public RepositoryStubs<R> answer(String method, Function<Object[], Object> answer) {
+        answers.put(method, answer);
+        return this;
+    }
+
+    public RepositoryStubs<R> returning(String method, Object value) {
+        return answer(method, args -> value);
+    }
+
+    public R build() {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, m, args) -> {
+            Function<Object[], Object> a = answers.get(m.getName());
+            if (a == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + m.getName() + " is not stubbed");
+            }
+            return a.apply(args);
+        });
+        return type.cast(proxy);
+    }
+}
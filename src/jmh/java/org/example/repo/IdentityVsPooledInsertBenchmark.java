@@ -0,0 +1,113 @@
+package org.example.repo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вставка графика из rows строк теми SQL, что шлёт Hibernate:
+ * IDENTITY — INSERT на строку с чтением сгенерированного ключа (батчи невозможны);
+ * pooled — один NEXT VALUE на 50 id и JDBC-батч по 50 строк.
+ * Отдельная H2 в памяти с таблицей как payment_schedule_item; транзакция откатывается.
+ * Сетевых round trip здесь нет — с внешней БД разница только больше.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IdentityVsPooledInsertBenchmark {
+
+    private static final int ALLOCATION = 50;
+
+    private static final String COLUMNS =
+            "application_id bigint, payment_no integer, due_date date, payment_total numeric(19,2), " +
+            "payment_interest numeric(19,2), payment_principal numeric(19,2), balance_after numeric(19,2)";
+
+    @Param({"360"})
+    public int rows;
+
+    private Connection con;
+
+    @Setup
+    public void setup() throws SQLException {
+        con = DriverManager.getConnection("jdbc:h2:mem:insert_bench;DB_CLOSE_DELAY=-1");
+        try (Statement st = con.createStatement()) {
+            st.execute("create table identity_item (id bigint generated by default as identity primary key, " + COLUMNS + ")");
+            st.execute("create table pooled_item (id bigint primary key, " + COLUMNS + ")");
+            st.execute("create sequence pooled_item_seq start with 1 increment by " + ALLOCATION);
+        }
+        con.setAutoCommit(false);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        con.close();
+    }
+
+    @Benchmark
+    public long identity() throws SQLException {
+        long last = 0;
+        try (PreparedStatement ps = con.prepareStatement(
+                "insert into identity_item (application_id, payment_no, due_date, payment_total, payment_interest, " +
+                "payment_principal, balance_after) values (?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 1; i <= rows; i++) {
+                bind(ps, 1, i);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    last = keys.getLong(1);
+                }
+            }
+        }
+        con.rollback();
+        return last;
+    }
+
+    @Benchmark
+    public long pooledBatched() throws SQLException {
+        long next = 1;
+        long hi = 0;
+        try (PreparedStatement seq = con.prepareStatement("select next value for pooled_item_seq");
+             PreparedStatement ps = con.prepareStatement(
+                     "insert into pooled_item (id, application_id, payment_no, due_date, payment_total, " +
+                     "payment_interest, payment_principal, balance_after) values (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                if (next > hi) {
+                    try (ResultSet rs = seq.executeQuery()) {
+                        rs.next();
+                        hi = rs.getLong(1);
+                    }
+                    next = hi - ALLOCATION + 1;
+                }
+                ps.setLong(1, next++);
+                bind(ps, 2, i);
+                ps.addBatch();
+                if (i % ALLOCATION == 0) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+        con.rollback();
+        return next;
+    }
+
+    private void bind(PreparedStatement ps, int from, int i) throws SQLException {
+        ps.setLong(from, 1L);
+        ps.setInt(from + 1, i);
+        ps.setDate(from + 2, Date.valueOf(LocalDate.of(2025, 1, 15).plusMonths(i)));
+        ps.setBigDecimal(from + 3, new BigDecimal("12345.67"));
+        ps.setBigDecimal(from + 4, new BigDecimal("2345.67"));
+        ps.setBigDecimal(from + 5, new BigDecimal("10000.00"));
+        ps.setBigDecimal(from + 6, BigDecimal.valueOf(rows - i).multiply(new BigDecimal("10000.00")));
+    }
+}
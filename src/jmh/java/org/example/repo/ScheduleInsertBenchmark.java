@@ -0,0 +1,86 @@
+package org.example.repo;
+
+import org.example.BankingApplication;
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * saveAll графика из rows строк через Hibernate при разном hibernate.jdbc.batch_size.
+ * batchSize = 1 — батчи выключены (id по-прежнему из pooled-последовательности), 50 — батчами.
+ * IDENTITY против pooled-последовательности на уровне SQL — {@link IdentityVsPooledInsertBenchmark}.
+ * Транзакция откатывается после flush, таблица между вызовами не растёт.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ScheduleInsertBenchmark {
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    @Param({"360"})
+    public int rows;
+
+    private ConfigurableApplicationContext ctx;
+    private PaymentScheduleItemRepository scheduleRepo;
+    private LeaseApplicationRepository appRepo;
+    private TransactionTemplate tx;
+    private Long appId;
+
+    @Setup
+    public void setup() {
+        ctx = new SpringApplicationBuilder(BankingApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                        "logging.level.root=WARN")
+                .run();
+        scheduleRepo = ctx.getBean(PaymentScheduleItemRepository.class);
+        appRepo = ctx.getBean(LeaseApplicationRepository.class);
+        tx = new TransactionTemplate(ctx.getBean(PlatformTransactionManager.class));
+        appId = appRepo.findAll().get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public int saveSchedule() {
+        return tx.execute(status -> {
+            LeaseApplication app = appRepo.getReferenceById(appId);
+            LocalDate start = LocalDate.of(2025, 1, 15);
+            List<PaymentScheduleItem> items = new ArrayList<PaymentScheduleItem>(rows);
+            for (int i = 1; i <= rows; i++) {
+                PaymentScheduleItem p = new PaymentScheduleItem();
+                p.setApplication(app);
+                p.setPaymentNo(i);
+                p.setDueDate(start.plusMonths(i));
+                p.setPaymentTotal(new BigDecimal("12345.67"));
+                p.setPaymentInterest(new BigDecimal("2345.67"));
+                p.setPaymentPrincipal(new BigDecimal("10000.00"));
+                p.setBalanceAfter(BigDecimal.valueOf(rows - i).multiply(new BigDecimal("10000.00")));
+                items.add(p);
+            }
+            int n = scheduleRepo.saveAllAndFlush(items).size();
+            status.setRollbackOnly();
+            return n;
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeasingCalculationBenchmark {
+
+    @Param({"12", "36", "60", "120", "240", "360"})
+    public int termMonths;
+
+    private LeasingCalculationService service;
+    private LeaseApplication app;
+
+    @Setup
+    public void setup() {
+        service = new LeasingCalculationService();
+
+        app = new LeaseApplication();
+        app.setFinancedAmount(new BigDecimal("2450000.00"));
+        app.setTermMonths(termMonths);
+        app.setAnnualRatePercent(new BigDecimal("14.5"));
+        app.setStartDate(LocalDate.of(2025, 1, 15));
+    }
+
+    /** Попадание в кэш шаблонов: только копия строк с датами заявки */
+    @Benchmark
+    public List<PaymentScheduleItem> buildAnnuitySchedule() {
+        return service.buildAnnuitySchedule(app);
+    }
+
+    /** Эталонный BigDecimal-расчёт без кэша */
+    @Benchmark
+    public List<PaymentScheduleItem> computeAnnuitySchedule() {
+        return service.computeAnnuitySchedule(app);
+    }
+
+    @Benchmark
+    public AnnuityCentsEngine.Schedule buildAnnuityScheduleCents() {
+        return service.buildAnnuityScheduleCents(app);
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.service;
+
+import org.example.bench.RepositoryStubs;
+import org.example.domain.ActualPayment;
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.example.repo.ActualPaymentRepository;
+import org.example.repo.LeaseApplicationRepository;
+import org.example.repo.PaymentScheduleItemRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * overdueInstallmentsCount на синтетическом графике из rows строк;
+ * оплачено примерно 90% плана, чтобы часть строк была просрочена.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PaymentsAnalyticsBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private PaymentsAnalyticsService service;
+    private LocalDate today;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        LocalDate start = LocalDate.of(1900, 1, 10);
+
+        List<PaymentScheduleItem> plan = new ArrayList<PaymentScheduleItem>(rows);
+        List<ActualPayment> facts = new ArrayList<ActualPayment>(rows);
+
+        for (int i = 1; i <= rows; i++) {
+            BigDecimal amount = BigDecimal.valueOf(50000 + rnd.nextInt(50000), 2);
+
+            PaymentScheduleItem p = new PaymentScheduleItem();
+            p.setPaymentNo(i);
+            p.setDueDate(start.plusDays(i));
+            p.setPaymentTotal(amount);
+            plan.add(p);
+
+            ActualPayment f = new ActualPayment();
+            f.setPaymentDate(start.plusDays(i));
+            f.setAmount(amount.multiply(new BigDecimal("0.9")));
+            facts.add(f);
+        }
+        today = start.plusDays(rows + 1);
+
+        PaymentScheduleItemRepository planRepo = RepositoryStubs.of(PaymentScheduleItemRepository.class)
+                .returning("findByApplicationIdOrderByPaymentNoAsc", plan)
+                .build();
+        ActualPaymentRepository factRepo = RepositoryStubs.of(ActualPaymentRepository.class)
+                .returning("findByContractIdOrderByPaymentDateAsc", facts)
+                .build();
+
+        LeaseApplication app = new LeaseApplication(); // persisted: строки из planRepo
+        LeaseApplicationRepository appRepo = RepositoryStubs.of(LeaseApplicationRepository.class)
+                .returning("findById", Optional.of(app))
+                .build();
+
+        ScheduleProvider schedules = new ScheduleProvider(planRepo, new LeasingCalculationService(), "persisted");
+        service = new PaymentsAnalyticsService(appRepo, schedules, new PaymentLedgerService(factRepo));
+    }
+
+    @Benchmark
+    public int overdueInstallmentsCount() {
+        return service.overdueInstallmentsCount(1L, 1L, today);
+    }
+}
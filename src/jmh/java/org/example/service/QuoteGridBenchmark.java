@@ -0,0 +1,59 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuoteGridBenchmark {
+
+    private QuoteGridService service;
+    private LeaseApplication app;
+
+    // 7 сроков × 40 ставок × 36 авансов = 10 080 ячеек
+    private final List<Integer> terms = Arrays.asList(12, 24, 36, 48, 60, 72, 84);
+    private final List<BigDecimal> rates = new ArrayList<BigDecimal>();
+    private final List<BigDecimal> advances = new ArrayList<BigDecimal>();
+
+    @Setup
+    public void setup() {
+        service = new QuoteGridService();
+
+        app = new LeaseApplication();
+        app.setAssetPrice(new BigDecimal("3250000.00"));
+
+        for (int i = 0; i < 40; i++) rates.add(BigDecimal.valueOf(800 + 25 * i, 2));
+        for (int i = 0; i < 36; i++) advances.add(BigDecimal.valueOf(i));
+    }
+
+    @Benchmark
+    public QuoteGridService.Grid quoteGrid() {
+        return service.quote(app, terms, rates, advances);
+    }
+
+    /** Та же сетка через полный график в копейках на каждую ячейку */
+    @Benchmark
+    public long perCellSchedules() {
+        long priceCents = 325000000L;
+        long s = 0;
+        for (BigDecimal a : advances) {
+            long financed = priceCents - priceCents * a.longValue() / 100;
+            for (BigDecimal r : rates) {
+                for (int n : terms) {
+                    s += AnnuityCentsEngine.schedule(financed, n, r).totalInterest();
+                }
+            }
+        }
+        return s;
+    }
+}
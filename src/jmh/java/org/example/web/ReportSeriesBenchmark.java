@@ -0,0 +1,93 @@
+package org.example.web;
+
+import org.example.bench.RepositoryStubs;
+import org.example.repo.ActualPaymentRepository;
+import org.example.repo.LeaseApplicationRepository;
+import org.example.repo.LeaseContractRepository;
+import org.example.service.DashboardRollupService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Серии дашборда по дневным свёрткам rows заявок и rows платежей за последние ~3 года */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReportSeriesBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"DAY", "MONTH", "QUARTER", "YEAR"})
+    public ReportController.Period period;
+
+    private ReportController controller;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        LocalDate today = LocalDate.now();
+
+        // синтетические строки сразу сворачиваем по дням — так их отдал бы GROUP BY
+        Map<LocalDate, Long> appsByDay = new HashMap<LocalDate, Long>();
+        Map<LocalDate, BigDecimal> paidByDay = new HashMap<LocalDate, BigDecimal>();
+
+        for (int i = 0; i < rows; i++) {
+            appsByDay.merge(today.minusDays(rnd.nextInt(1100)), 1L, Long::sum);
+            paidByDay.merge(today.minusDays(rnd.nextInt(1100)),
+                    BigDecimal.valueOf(100000 + rnd.nextInt(5000000), 2), BigDecimal::add);
+        }
+
+        List<LeaseApplicationRepository.DayCount> dayCounts = new ArrayList<LeaseApplicationRepository.DayCount>();
+        for (Map.Entry<LocalDate, Long> e : appsByDay.entrySet()) {
+            dayCounts.add(new LeaseApplicationRepository.DayCount() {
+                @Override public LocalDate getDay() { return e.getKey(); }
+                @Override public Long getCnt() { return e.getValue(); }
+            });
+        }
+        List<ActualPaymentRepository.DaySum> daySums = new ArrayList<ActualPaymentRepository.DaySum>();
+        for (Map.Entry<LocalDate, BigDecimal> e : paidByDay.entrySet()) {
+            daySums.add(new ActualPaymentRepository.DaySum() {
+                @Override public LocalDate getDay() { return e.getKey(); }
+                @Override public BigDecimal getTotal() { return e.getValue(); }
+            });
+        }
+
+        LeaseApplicationRepository appRepo = RepositoryStubs.of(LeaseApplicationRepository.class)
+                .returning("countGroupedByCreatedDate", dayCounts)
+                .build();
+        ActualPaymentRepository paymentRepo = RepositoryStubs.of(ActualPaymentRepository.class)
+                .returning("sumGroupedByPaymentDate", daySums)
+                .build();
+        LeaseContractRepository contractRepo = RepositoryStubs.of(LeaseContractRepository.class).build();
+
+        controller = new ReportController(appRepo, contractRepo, paymentRepo, null,
+                new DashboardRollupService(appRepo, paymentRepo), new DashboardDataCache(), null, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        controller.shutdown();
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, Integer> buildAppsSeries() {
+        return controller.buildAppsSeries(period);
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, BigDecimal> buildPaidSeries() {
+        return controller.buildPaidSeries(period);
+    }
+}
@@ -2,10 +2,17 @@ package org.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class BankingApplication {
+
+    private static final int STARTUP_STEPS = 4096;
+
     public static void main(String[] args) {
-        SpringApplication.run(BankingApplication.class, args);
+        SpringApplication app = new SpringApplication(BankingApplication.class);
+        // шаги старта для отчёта StartupReport и /actuator/startup
+        app.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+        app.run(args);
     }
 }
\ No newline at end of file
@@ -2,17 +2,36 @@ package org.example.config;
 
 import org.example.domain.*;
 import org.example.repo.*;
+import org.example.service.DataSeededEvent;
 import org.example.service.LeasingCalculationService;
+import org.example.service.LoadDataGenerator;
+import org.example.service.ScheduleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.*;
 
+/**
+ * Начальные данные: демо-набор или нагрузочный ({@link LoadDataGenerator}).
+ *
+ * leasing.seed.mode=sync — загрузка до готовности приложения (как CommandLineRunner);
+ * async — в фоновом потоке, HTTP-порт доступен сразу, а /actuator/health/readiness
+ * отвечает OUT_OF_SERVICE, пока данные не загружены ({@link SeedingHealthIndicator}).
+ * По окончании публикуется {@link DataSeededEvent} — свёртки и кэши перечитываются.
+ */
 @Component
 public class DemoDataSeeder implements CommandLineRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(DemoDataSeeder.class);
+
     private final ClientRepository clientRepo;
     private final SupplierRepository supplierRepo;
     private final InsuranceCompanyRepository insurerRepo;
@@ -25,6 +44,13 @@ public class DemoDataSeeder implements CommandLineRunner {
     private final ActualPaymentRepository paymentRepo;
 
     private final LeasingCalculationService calcService;
+    private final ScheduleProvider schedules;
+    private final LoadDataGenerator generator;
+
+    private final SeedingHealthIndicator status;
+    private final ApplicationEventPublisher events;
+    private final ApplicationStartup startup;
+    private final boolean async;
 
     public DemoDataSeeder(
             ClientRepository clientRepo,
@@ -35,7 +61,13 @@ public class DemoDataSeeder implements CommandLineRunner {
             PaymentScheduleItemRepository scheduleRepo,
             LeaseContractRepository contractRepo,
             ActualPaymentRepository paymentRepo,
-            LeasingCalculationService calcService
+            LeasingCalculationService calcService,
+            ScheduleProvider schedules,
+            LoadDataGenerator generator,
+            SeedingHealthIndicator status,
+            ApplicationEventPublisher events,
+            ApplicationStartup startup,
+            @Value("${leasing.seed.mode:sync}") String mode
     ) {
         this.clientRepo = clientRepo;
         this.supplierRepo = supplierRepo;
@@ -46,16 +78,55 @@ public class DemoDataSeeder implements CommandLineRunner {
         this.contractRepo = contractRepo;
         this.paymentRepo = paymentRepo;
         this.calcService = calcService;
+        this.schedules = schedules;
+        this.generator = generator;
+        this.status = status;
+        this.events = events;
+        this.startup = startup;
+        this.async = "async".equalsIgnoreCase(mode);
     }
 
     @Override
     public void run(String... args) {
+        status.started(async);
+        if (!async) {
+            seedAndReport();
+            return;
+        }
+        Thread t = new Thread(this::seedAndReport, "data-seeder");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void seedAndReport() {
+        StartupStep step = startup.start("leasing.seed").tag("mode", async ? "async" : "sync");
+        try {
+            seed();
+            status.completed();
+            if (async) log.info("startup: data seeded in {} ms (async)", status.getMillis());
+            events.publishEvent(new DataSeededEvent(status.getMillis()));
+        } catch (RuntimeException e) {
+            status.failed(e);
+            if (!async) throw e;
+            log.error("Data seeding failed", e);
+        } finally {
+            step.end();
+        }
+    }
+
+    private void seed() {
         // 1) чтобы не плодить данные при перезапуске:
         // если уже есть заявки/договоры — значит сидер отработал ранее.
         if (appRepo.count() > 0 || contractRepo.count() > 0) {
             return;
         }
 
+        // режим нагрузочных данных: объёмы из leasing.datagen.*, вместо демо-набора ниже
+        if (generator.isEnabled()) {
+            generator.generate();
+            return;
+        }
+
         Random rnd = new Random(42); // детерминированно
 
         // --- Справочники ---
@@ -109,11 +180,14 @@ public class DemoDataSeeder implements CommandLineRunner {
             apps.add(app);
 
             // график платежей создаём всем, даже NEW/REJECTED — для демонстрации расчёта
+            // (в derived-режиме строки не хранятся, график выводится из параметров)
             List<PaymentScheduleItem> schedule = calcService.buildAnnuitySchedule(app);
-            for (PaymentScheduleItem it : schedule) {
-                it.setApplication(app);
+            if (schedules.isStored(app)) {
+                for (PaymentScheduleItem it : schedule) {
+                    it.setApplication(app);
+                }
+                scheduleRepo.saveAll(schedule);
             }
-            scheduleRepo.saveAll(schedule);
         }
 
         // --- Договоры из APPROVED + платежи ---
@@ -0,0 +1,58 @@
+package org.example.config;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Состояние начальной загрузки данных ({@link DemoDataSeeder}) для /actuator/health.
+ * Входит в группу readiness: пока данные грузятся, /actuator/health/readiness — OUT_OF_SERVICE.
+ */
+@Component
+public class SeedingHealthIndicator implements HealthIndicator {
+
+    public enum State {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    private volatile State state = State.PENDING;
+    private volatile String mode = "sync";
+    private volatile long startedAt;
+    private volatile long millis;
+    private volatile String error;
+
+    void started(boolean async) {
+        this.mode = async ? "async" : "sync";
+        this.startedAt = System.currentTimeMillis();
+        this.state = State.RUNNING;
+    }
+
+    void completed() {
+        this.millis = System.currentTimeMillis() - startedAt;
+        this.state = State.DONE;
+    }
+
+    void failed(Throwable e) {
+        this.millis = System.currentTimeMillis() - startedAt;
+        this.error = e.toString();
+        this.state = State.FAILED;
+    }
+
+    public State getState() { return state; }
+    public long getMillis() { return millis; }
+
+    @Override
+    public Health health() {
+        State s = state;
+        Health.Builder b;
+        if (s == State.DONE) {
+            b = Health.up().withDetail("millis", millis);
+        } else if (s == State.FAILED) {
+            b = Health.down().withDetail("millis", millis).withDetail("error", error);
+        } else {
+            b = Health.outOfService();
+            if (s == State.RUNNING) b.withDetail("runningMillis", System.currentTimeMillis() - startedAt);
+        }
+        return b.withDetail("state", s.name()).withDetail("mode", mode).build();
+    }
+}
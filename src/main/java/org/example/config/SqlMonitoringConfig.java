@@ -0,0 +1,33 @@
+package org.example.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Подсчёт SQL по запросам: DataSource оборачивается в {@link SqlMonitoringDataSource},
+ * бюджет на запрос проверяет {@link org.example.web.SqlBudgetFilter}.
+ * Выключается leasing.sql.monitor.enabled=false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "leasing.sql.monitor.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMonitoringConfig {
+
+    @Bean
+    public static BeanPostProcessor sqlMonitoringDataSourcePostProcessor(final Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof SqlMonitoringDataSource)) {
+                    long slowMillis = env.getProperty("leasing.sql.slow-statement-ms", Long.class, 100L);
+                    return new SqlMonitoringDataSource((DataSource) bean, slowMillis);
+                }
+                return bean;
+            }
+        };
+    }
+}
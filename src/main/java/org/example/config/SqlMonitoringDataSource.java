@@ -0,0 +1,144 @@
+package org.example.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обёртка DataSource: каждое выполнение оператора (execute*, включая executeBatch)
+ * засчитывается в текущую {@link SqlStatementStats.Scope}, операторы дольше порога
+ * пишутся в лог org.example.sql.slow вместе с параметрами.
+ *
+ * Прокси JDK поверх Connection/Statement — без сторонних библиотек;
+ * параметры запоминаются только у PreparedStatement/CallableStatement.
+ */
+public class SqlMonitoringDataSource extends DelegatingDataSource {
+
+    private static final Logger slowLog = LoggerFactory.getLogger("org.example.sql.slow");
+
+    private static final int MAX_PARAM_LENGTH = 100;
+
+    private final long slowNanos;
+
+    public SqlMonitoringDataSource(DataSource target, long slowMillis) {
+        super(target);
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(final Connection target) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Object res = call(target, method, args);
+                        if (res instanceof Statement) {
+                            String sql = args != null && args.length > 0 && args[0] instanceof String
+                                    ? (String) args[0] : null; // prepareStatement/prepareCall
+                            return wrap((Statement) res, sql);
+                        }
+                        return res;
+                    }
+                });
+    }
+
+    private Statement wrap(Statement target, String sql) {
+        Class<?> type = target instanceof CallableStatement ? CallableStatement.class
+                : target instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[]{type}, new StatementHandler(target, sql));
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private final Map<Integer, Object> params = new TreeMap<Integer, Object>();
+        private int batched;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("execute")) {
+                long t0 = System.nanoTime();
+                try {
+                    return call(target, method, args);
+                } finally {
+                    executed(System.nanoTime() - t0, args);
+                }
+            }
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                params.put((Integer) args[0], args[1]);
+            } else if ("clearParameters".equals(name)) {
+                params.clear();
+            } else if ("addBatch".equals(name)) {
+                batched++;
+            }
+            return call(target, method, args);
+        }
+
+        private void executed(long nanos, Object[] args) {
+            boolean slow = nanos >= slowNanos;
+            SqlStatementStats.record(nanos, slow);
+
+            if (slow && slowLog.isWarnEnabled()) {
+                String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                // у батча видны параметры только последней строки
+                slowLog.warn("slow SQL ({} ms{}): {} | {} {}",
+                        TimeUnit.NANOSECONDS.toMillis(nanos),
+                        batched > 0 ? ", batch of " + batched : "",
+                        text, batched > 0 ? "last params" : "params", formatParams());
+            }
+            batched = 0;
+        }
+
+        private String formatParams() {
+            StringBuilder sb = new StringBuilder("[");
+            for (Map.Entry<Integer, Object> e : params.entrySet()) {
+                if (sb.length() > 1) sb.append(", ");
+                String v = String.valueOf(e.getValue());
+                if (v.length() > MAX_PARAM_LENGTH) v = v.substring(0, MAX_PARAM_LENGTH) + "...";
+                sb.append(e.getKey()).append('=').append(v);
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Счётчик SQL-операторов в рамках области (HTTP-запрос, тест, фоновая задача).
+ *
+ * Область привязана к потоку; операторы считает {@link SqlMonitoringDataSource},
+ * то есть учитываются и Hibernate (включая ленивые прокси), и JdbcTemplate.
+ * Задачи, уходящие в пулы, подключаются к области вызывающего через {@link #propagate}.
+ */
+public final class SqlStatementStats {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<Scope>();
+
+    private SqlStatementStats() {
+    }
+
+    /** Открыть область в текущем потоке; закрытие возвращает предыдущую (области вкладываются) */
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /** Задача, которая считает свои операторы в область вызывающего потока (если она открыта) */
+    public static <T> Supplier<T> propagate(final Supplier<T> task) {
+        final Scope scope = CURRENT.get();
+        if (scope == null) return task;
+        return () -> {
+            Scope prev = CURRENT.get();
+            CURRENT.set(scope);
+            try {
+                return task.get();
+            } finally {
+                restore(prev);
+            }
+        };
+    }
+
+    static void record(long nanos, boolean slow) {
+        Scope scope = CURRENT.get();
+        if (scope == null) return;
+        scope.statements.incrementAndGet();
+        scope.nanos.addAndGet(nanos);
+        if (slow) scope.slow.incrementAndGet();
+    }
+
+    private static void restore(Scope prev) {
+        if (prev == null) CURRENT.remove();
+        else CURRENT.set(prev);
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Scope parent;
+        private final AtomicInteger statements = new AtomicInteger();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicInteger slow = new AtomicInteger();
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public int getStatements() { return statements.get(); }
+        public long getMillis() { return TimeUnit.NANOSECONDS.toMillis(nanos.get()); }
+        public int getSlowStatements() { return slow.get(); }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) restore(parent);
+            // вложенная область отдаёт свои операторы внешней
+            if (parent != null) {
+                parent.statements.addAndGet(statements.get());
+                parent.nanos.addAndGet(nanos.get());
+                parent.slow.addAndGet(slow.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Отчёт о старте в лог: сколько заняли обновление контекста, поднятие JPA (вместе с DDL),
+ * миграции схемы (Flyway) и загрузка данных. Фазы берутся из {@link BufferingApplicationStartup}
+ * (включается в {@link org.example.BankingApplication}), полный таймлайн — /actuator/startup.
+ * При асинхронной загрузке данных её время пишет {@link DemoDataSeeder} по окончании.
+ */
+@Component
+public class StartupReport {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupReport.class);
+
+    private static final String ENTITY_MANAGER_FACTORY = "&entityManagerFactory";
+    private static final String MIGRATIONS = "flywayInitializer";
+
+    private final ApplicationContext context;
+    private final SeedingHealthIndicator seeding;
+
+    public StartupReport(ApplicationContext context, SeedingHealthIndicator seeding) {
+        this.context = context;
+        this.seeding = seeding;
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent e) {
+        StringBuilder sb = new StringBuilder("startup: ready in ")
+                .append(e.getTimeTaken() == null ? "?" : e.getTimeTaken().toMillis()).append(" ms");
+
+        ApplicationStartup startup = context.getBean(ApplicationStartup.class);
+        if (startup instanceof BufferingApplicationStartup) {
+            StartupTimeline timeline = ((BufferingApplicationStartup) startup).getBufferedTimeline();
+            append(sb, "context refresh", step(timeline, "spring.context.refresh", null));
+            append(sb, "JPA bootstrap", step(timeline, "spring.beans.instantiate", ENTITY_MANAGER_FACTORY));
+            append(sb, "schema migrations", step(timeline, "spring.beans.instantiate", MIGRATIONS));
+        }
+
+        if (seeding.getState() == SeedingHealthIndicator.State.DONE) {
+            append(sb, "seeding", seeding.getMillis());
+        } else {
+            sb.append(", seeding ").append(seeding.getState().name().toLowerCase());
+        }
+        log.info(sb.toString());
+    }
+
+    /** Длительность первого шага с таким именем (и тегом beanName, если задан), -1 — не найден */
+    private static long step(StartupTimeline timeline, String name, String beanName) {
+        for (StartupTimeline.TimelineEvent te : timeline.getEvents()) {
+            StartupStep s = te.getStartupStep();
+            if (!name.equals(s.getName())) continue;
+            if (beanName != null && !hasTag(s, "beanName", beanName)) continue;
+            Duration d = te.getDuration();
+            return d == null ? -1 : d.toMillis();
+        }
+        return -1;
+    }
+
+    private static boolean hasTag(StartupStep s, String key, String value) {
+        for (StartupStep.Tag t : s.getTags()) {
+            if (key.equals(t.getKey()) && value.equals(t.getValue())) return true;
+        }
+        return false;
+    }
+
+    private static void append(StringBuilder sb, String phase, long millis) {
+        sb.append(", ").append(phase).append(' ').append(millis < 0 ? "?" : String.valueOf(millis)).append(" ms");
+    }
+}
@@ -5,10 +5,16 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = @Index(name = "idx_actual_payment_contract_date", columnList = "contract_id, paymentDate"))
 public class ActualPayment {
 
+    // pooled-последовательность, как у PaymentScheduleItem
+    public static final String ID_SEQUENCE = "actual_payment_seq";
+    public static final int ID_ALLOCATION = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "actual_payment_id")
+    @SequenceGenerator(name = "actual_payment_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
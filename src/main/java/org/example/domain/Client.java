@@ -3,6 +3,7 @@ package org.example.domain;
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = @Index(name = "idx_client_name", columnList = "name, id"))
 public class Client {
 
     @Id
@@ -5,8 +5,20 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
+@NamedEntityGraph(name = LeaseApplication.GRAPH_PARTIES, attributeNodes = {
+        @NamedAttributeNode("client"),
+        @NamedAttributeNode("asset")
+})
+@Table(indexes = {
+        @Index(name = "idx_lease_application_created", columnList = "createdDate, id"),
+        @Index(name = "idx_lease_application_status", columnList = "status, createdDate"),
+        @Index(name = "idx_lease_application_client", columnList = "client_id")
+})
 public class LeaseApplication {
 
+    /** Заявка + клиент + объект — всё, что показывают список, карточка и печать */
+    public static final String GRAPH_PARTIES = "LeaseApplication.parties";
+
     public enum Status {
         NEW, APPROVED, REJECTED, CONTRACTED
     }
@@ -45,6 +57,9 @@ public class LeaseApplication {
     @Enumerated(EnumType.STRING)
     private Status status;
 
+    // график правили вручную — он уже не выводится из параметров заявки
+    private Boolean scheduleManual;
+
     public Long getId() { return id; }
 
     public String getApplicationNumber() { return applicationNumber; }
@@ -80,5 +95,8 @@ public class LeaseApplication {
     public Status getStatus() { return status; }
     public void setStatus(Status status) { this.status = status; }
 
+    public boolean isScheduleManual() { return Boolean.TRUE.equals(scheduleManual); }
+    public void setScheduleManual(boolean scheduleManual) { this.scheduleManual = scheduleManual; }
+
 
 }
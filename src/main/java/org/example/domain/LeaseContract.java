@@ -5,8 +5,37 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = LeaseContract.GRAPH_PARTIES,
+                attributeNodes = @NamedAttributeNode(value = "application", subgraph = "app"),
+                subgraphs = @NamedSubgraph(name = "app", attributeNodes = {
+                        @NamedAttributeNode("client"),
+                        @NamedAttributeNode("asset")
+                })),
+        @NamedEntityGraph(name = LeaseContract.GRAPH_PRINT,
+                attributeNodes = @NamedAttributeNode(value = "application", subgraph = "app"),
+                subgraphs = {
+                        @NamedSubgraph(name = "app", attributeNodes = {
+                                @NamedAttributeNode("client"),
+                                @NamedAttributeNode(value = "asset", subgraph = "asset")
+                        }),
+                        @NamedSubgraph(name = "asset", attributeNodes = {
+                                @NamedAttributeNode("supplier"),
+                                @NamedAttributeNode("insurer")
+                        })
+                })
+})
+@Table(indexes = {
+        @Index(name = "idx_lease_contract_date", columnList = "contractDate, id"),
+        @Index(name = "uk_lease_contract_number", columnList = "contractNumber", unique = true)
+})
 public class LeaseContract {
 
+    /** Договор + заявка с клиентом и объектом (список, карточка, график) */
+    public static final String GRAPH_PARTIES = "LeaseContract.parties";
+    /** То же + поставщик и страховая объекта (печатные формы ДКП и договора лизинга) */
+    public static final String GRAPH_PRINT = "LeaseContract.print";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
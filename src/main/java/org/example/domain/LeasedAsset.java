@@ -6,8 +6,20 @@ import org.example.domain.InsuranceCompany;
 
 
 @Entity
+@NamedEntityGraph(name = LeasedAsset.GRAPH_PARTIES, attributeNodes = {
+        @NamedAttributeNode("supplier"),
+        @NamedAttributeNode("insurer")
+})
+@Table(indexes = {
+        @Index(name = "idx_leased_asset_name", columnList = "name, id"),
+        @Index(name = "idx_leased_asset_price", columnList = "price, id"),
+        @Index(name = "idx_leased_asset_type", columnList = "assetType")
+})
 public class LeasedAsset {
 
+    /** Объект + поставщик и страховая (каталог объектов) */
+    public static final String GRAPH_PARTIES = "LeasedAsset.parties";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -5,10 +5,16 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = @Index(name = "idx_payment_schedule_item_application", columnList = "application_id"))
 public class PaymentScheduleItem {
 
+    // pooled-последовательность: Hibernate берёт id блоками и может батчить INSERT (с IDENTITY — нет)
+    public static final String ID_SEQUENCE = "payment_schedule_item_seq";
+    public static final int ID_ALLOCATION = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_schedule_item_id")
+    @SequenceGenerator(name = "payment_schedule_item_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -2,11 +2,25 @@ package org.example.repo;
 
 import org.example.domain.ActualPayment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 public interface ActualPaymentRepository extends JpaRepository<ActualPayment, Long> {
     List<ActualPayment> findByContractIdOrderByPaymentDateAsc(Long contractId);
     List<ActualPayment> findByContractIdAndPaymentDateLessThanEqualOrderByPaymentDateAsc(Long contractId, LocalDate date);
+
+    @Query("select coalesce(sum(p.amount), 0) from ActualPayment p")
+    BigDecimal sumAmount();
+
+    interface DaySum {
+        LocalDate getDay();
+        BigDecimal getTotal();
+    }
+
+    @Query("select p.paymentDate as day, coalesce(sum(p.amount), 0) as total from ActualPayment p " +
+           "where p.paymentDate is not null group by p.paymentDate")
+    List<DaySum> sumGroupedByPaymentDate();
 }
@@ -0,0 +1,22 @@
+package org.example.repo;
+
+import java.util.List;
+
+/** Страница keyset-выборки: строки + курсор следующей страницы (null — страниц больше нет) */
+public class KeysetPage<T> {
+
+    private final List<T> items;
+    private final Long nextAfterId;
+    private final String nextAfterValue;
+
+    KeysetPage(List<T> items, Long nextAfterId, String nextAfterValue) {
+        this.items = items;
+        this.nextAfterId = nextAfterId;
+        this.nextAfterValue = nextAfterValue;
+    }
+
+    public List<T> getItems() { return items; }
+    public boolean isHasNext() { return nextAfterId != null; }
+    public Long getNextAfterId() { return nextAfterId; }
+    public String getNextAfterValue() { return nextAfterValue; }
+}
@@ -0,0 +1,118 @@
+package org.example.repo;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyset (seek) пагинация: вместо OFFSET — условие "после курсора" по (поле сортировки, id)
+ * и LIMIT size + 1. При индексе на (поле, id) любая страница стоит одинаково.
+ *
+ * NULL в поле сортировки считается меньше любого значения (так сортирует H2 по умолчанию).
+ */
+@Component
+public class KeysetPager {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Transactional(readOnly = true)
+    public <T> KeysetPage<T> page(Class<T> type, Specification<T> filter, KeysetRequest req) {
+        return page(type, filter, req, null);
+    }
+
+    /**
+     * @param fetchGraph имя {@link javax.persistence.NamedEntityGraph}: связи, которые шаблон страницы
+     *                   всё равно прочитает, приходят join-ом в том же запросе (без N+1)
+     */
+    @Transactional(readOnly = true)
+    public <T> KeysetPage<T> page(Class<T> type, Specification<T> filter, KeysetRequest req, String fetchGraph) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<T> q = cb.createQuery(type);
+        Root<T> root = q.from(type);
+
+        List<Predicate> where = new ArrayList<Predicate>();
+        if (filter != null) {
+            Predicate p = filter.toPredicate(root, q, cb);
+            if (p != null) where.add(p);
+        }
+
+        Path<Long> id = root.get("id");
+        if (req.isIdSort()) {
+            if (req.getAfterId() != null) {
+                where.add(req.isDesc() ? cb.lessThan(id, req.getAfterId()) : cb.greaterThan(id, req.getAfterId()));
+            }
+            q.orderBy(req.isDesc() ? cb.desc(id) : cb.asc(id));
+        } else {
+            Path<Comparable<Object>> field = root.get(req.getSortField());
+            if (req.getAfterId() != null) {
+                where.add(after(cb, field, id, req));
+            }
+            q.orderBy(req.isDesc() ? cb.desc(field) : cb.asc(field),
+                      req.isDesc() ? cb.desc(id) : cb.asc(id));
+        }
+
+        q.select(root).where(where.toArray(new Predicate[0]));
+
+        TypedQuery<T> query = em.createQuery(q).setMaxResults(req.getSize() + 1);
+        if (fetchGraph != null) {
+            query.setHint("javax.persistence.loadgraph", em.getEntityGraph(fetchGraph));
+        }
+        List<T> rows = query.getResultList();
+
+        if (rows.size() <= req.getSize()) {
+            return new KeysetPage<T>(rows, null, null);
+        }
+
+        rows = new ArrayList<T>(rows.subList(0, req.getSize()));
+        BeanWrapperImpl last = new BeanWrapperImpl(rows.get(rows.size() - 1));
+        Long nextId = (Long) last.getPropertyValue("id");
+        Object nextValue = req.isIdSort() ? null : last.getPropertyValue(req.getSortField());
+        return new KeysetPage<T>(rows, nextId, nextValue == null ? null : nextValue.toString());
+    }
+
+    private Predicate after(CriteriaBuilder cb, Path<Comparable<Object>> field, Path<Long> id, KeysetRequest req) {
+        Long afterId = req.getAfterId();
+
+        if (req.getAfterValue() == null) {
+            // курсор внутри NULL-сегмента
+            Predicate inNulls = cb.and(cb.isNull(field),
+                    req.isDesc() ? cb.lessThan(id, afterId) : cb.greaterThan(id, afterId));
+            return req.isDesc() ? inNulls : cb.or(inNulls, cb.isNotNull(field));
+        }
+
+        Comparable<Object> v = parse(field.getJavaType(), req.getAfterValue());
+        if (req.isDesc()) {
+            return cb.or(cb.lessThan(field, v),
+                    cb.and(cb.equal(field, v), cb.lessThan(id, afterId)),
+                    cb.isNull(field));
+        }
+        return cb.or(cb.greaterThan(field, v),
+                cb.and(cb.equal(field, v), cb.greaterThan(id, afterId)));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparable<Object> parse(Class<?> type, String v) {
+        if (type == String.class) return (Comparable) v;
+        if (type == LocalDate.class) return (Comparable) LocalDate.parse(v);
+        if (type == BigDecimal.class) return (Comparable) new BigDecimal(v);
+        if (type == Long.class) return (Comparable) Long.valueOf(v);
+        if (type == Integer.class) return (Comparable) Integer.valueOf(v);
+        if (type.isEnum()) return (Comparable) Enum.valueOf((Class<Enum>) type, v);
+        throw new IllegalArgumentException("Unsupported keyset sort type: " + type.getName());
+    }
+}
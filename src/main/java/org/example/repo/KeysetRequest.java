@@ -0,0 +1,33 @@
+package org.example.repo;
+
+/**
+ * Запрос keyset-страницы: сортировка (поле + id как тай-брейкер), курсор и размер.
+ * Курсор — id и значение поля сортировки последней строки предыдущей страницы.
+ */
+public class KeysetRequest {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 200;
+
+    private final String sortField;   // "id" или имя атрибута сущности
+    private final boolean desc;
+    private final Long afterId;
+    private final String afterValue;  // null — значение поля было null
+    private final int size;
+
+    public KeysetRequest(String sortField, boolean desc, Long afterId, String afterValue, Integer size) {
+        this.sortField = sortField == null ? "id" : sortField;
+        this.desc = desc;
+        this.afterId = afterId;
+        this.afterValue = afterValue;
+        this.size = size == null || size <= 0 ? DEFAULT_SIZE : Math.min(size, MAX_SIZE);
+    }
+
+    public String getSortField() { return sortField; }
+    public boolean isDesc() { return desc; }
+    public Long getAfterId() { return afterId; }
+    public String getAfterValue() { return afterValue; }
+    public int getSize() { return size; }
+
+    public boolean isIdSort() { return "id".equals(sortField); }
+}
@@ -1,6 +1,67 @@
 package org.example.repo;
 
 import org.example.domain.LeaseApplication;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface LeaseApplicationRepository extends JpaRepository<LeaseApplication, Long> {}
+import javax.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface LeaseApplicationRepository extends JpaRepository<LeaseApplication, Long> {
+
+    /** Карточка и печать заявки: клиент и объект в том же select */
+    @EntityGraph(LeaseApplication.GRAPH_PARTIES)
+    @Query("select a from LeaseApplication a where a.id = :id")
+    Optional<LeaseApplication> findWithPartiesById(@Param("id") Long id);
+
+    interface StatusCount {
+        LeaseApplication.Status getStatus();
+        Long getCnt();
+    }
+
+    @Query("select a.status as status, count(a) as cnt from LeaseApplication a group by a.status")
+    List<StatusCount> countGroupedByStatus();
+
+    /** Параметры графика заявки для выгрузки в derived-режиме */
+    interface ScheduleParams {
+        Long getId();
+        String getApplicationNumber();
+        String getContractNumber();
+        BigDecimal getFinancedAmount();
+        Integer getTermMonths();
+        BigDecimal getAnnualRatePercent();
+        LocalDate getStartDate();
+        Boolean getScheduleManual();
+    }
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select a.id as id, a.applicationNumber as applicationNumber, c.contractNumber as contractNumber, " +
+           "a.financedAmount as financedAmount, a.termMonths as termMonths, " +
+           "a.annualRatePercent as annualRatePercent, a.startDate as startDate, " +
+           "a.scheduleManual as scheduleManual " +
+           "from LeaseApplication a left join LeaseContract c on c.application = a " +
+           "order by a.id")
+    Stream<ScheduleParams> streamScheduleParams();
+
+    interface DayCount {
+        LocalDate getDay();
+        Long getCnt();
+    }
+
+    @Query("select a.createdDate as day, count(a) as cnt from LeaseApplication a " +
+           "where a.createdDate is not null group by a.createdDate")
+    List<DayCount> countGroupedByCreatedDate();
+}
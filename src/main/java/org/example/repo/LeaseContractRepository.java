@@ -1,10 +1,23 @@
 package org.example.repo;
 
 import org.example.domain.LeaseContract;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface LeaseContractRepository extends JpaRepository<LeaseContract, Long> {
     Optional<LeaseContract> findByApplicationId(Long applicationId);
+
+    // карточка и печатные формы: связи догружаются в том же select, а не прокси по одному
+
+    @EntityGraph(LeaseContract.GRAPH_PARTIES)
+    @Query("select c from LeaseContract c where c.id = :id")
+    Optional<LeaseContract> findWithPartiesById(@Param("id") Long id);
+
+    @EntityGraph(LeaseContract.GRAPH_PRINT)
+    @Query("select c from LeaseContract c where c.id = :id")
+    Optional<LeaseContract> findForPrintById(@Param("id") Long id);
 }
@@ -2,13 +2,70 @@ package org.example.repo;
 
 import org.example.domain.PaymentScheduleItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface PaymentScheduleItemRepository extends JpaRepository<PaymentScheduleItem, Long> {
 
     List<PaymentScheduleItem> findByApplicationIdOrderByPaymentNoAsc(Long applicationId);
 
     void deleteByApplicationId(Long applicationId);
-}
 
+    /** Один DELETE без загрузки строк; возвращает число удалённых */
+    @Modifying
+    @Query("delete from PaymentScheduleItem s where s.application.id = :applicationId")
+    int deleteAllByApplicationId(@Param("applicationId") Long applicationId);
+
+    /** Строка выгрузки графиков (проекция, без сущностей) */
+    interface ExportRow {
+        Long getApplicationId();
+        String getApplicationNumber();
+        String getContractNumber();
+        Integer getPaymentNo();
+        LocalDate getDueDate();
+        BigDecimal getPaymentTotal();
+        BigDecimal getPaymentInterest();
+        BigDecimal getPaymentPrincipal();
+        BigDecimal getBalanceAfter();
+    }
+
+    /** Все строки графиков с номерами заявки и договора — потоком, вызывать в транзакции */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select a.id as applicationId, a.applicationNumber as applicationNumber, " +
+           "c.contractNumber as contractNumber, s.paymentNo as paymentNo, s.dueDate as dueDate, " +
+           "s.paymentTotal as paymentTotal, s.paymentInterest as paymentInterest, " +
+           "s.paymentPrincipal as paymentPrincipal, s.balanceAfter as balanceAfter " +
+           "from PaymentScheduleItem s join s.application a " +
+           "left join LeaseContract c on c.application = a " +
+           "order by a.id, s.paymentNo")
+    Stream<ExportRow> streamForExport();
+
+    /** То же, только вручную правленные графики (derived-режим хранит лишь их) */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select a.id as applicationId, a.applicationNumber as applicationNumber, " +
+           "c.contractNumber as contractNumber, s.paymentNo as paymentNo, s.dueDate as dueDate, " +
+           "s.paymentTotal as paymentTotal, s.paymentInterest as paymentInterest, " +
+           "s.paymentPrincipal as paymentPrincipal, s.balanceAfter as balanceAfter " +
+           "from PaymentScheduleItem s join s.application a " +
+           "left join LeaseContract c on c.application = a " +
+           "where a.scheduleManual = true " +
+           "order by a.id, s.paymentNo")
+    Stream<ExportRow> streamManualForExport();
+}
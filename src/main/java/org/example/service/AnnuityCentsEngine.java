@@ -0,0 +1,243 @@
+package org.example.service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Аннуитетный расчёт в копейках (long) — быстрый двойник BigDecimal-расчёта
+ * из {@link LeasingCalculationService#buildAnnuitySchedule}.
+ *
+ * Ставка и платёж считаются один раз на график (теми же BigDecimal-операциями),
+ * дальше строки считаются в примитивах. Проценты строки округляются HALF_UP
+ * через double; если значение попало вплотную к половине копейки,
+ * строка досчитывается точно через BigDecimal — поэтому результат совпадает
+ * с BigDecimal-путём до копейки, включая "хвост" на последнем платеже.
+ *
+ * Суммы и платёж ограничены {@link #MAX_CENTS}: платёж × 600 месяцев помещается в long.
+ * Итоги графика ({@link Schedule#totalPayments}, {@link Schedule#totalInterest}) всё равно
+ * складываются с проверкой переполнения — срок движок не ограничивает. Вне диапазона —
+ * IllegalArgumentException; {@link #toCentsExact} для таких сумм возвращает null,
+ * и вызывающие уходят в BigDecimal-путь.
+ */
+public final class AnnuityCentsEngine {
+
+    static final MathContext MC = new MathContext(20, RoundingMode.HALF_UP);
+
+    /** 10^14 рублей (10^16 копеек) — предел сумм и платежа для копеечного расчёта; 600 * MAX_CENTS < Long.MAX_VALUE */
+    public static final long MAX_CENTS = 10_000_000_000_000_000L;
+
+    private static final BigDecimal TWELVE = new BigDecimal("12");
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    private AnnuityCentsEngine() {
+    }
+
+    /** Параметры ставки, посчитанные один раз на график */
+    public static final class Rate {
+        final BigDecimal monthly;     // r = annual / 12 / 100 (MC)
+        final double monthlyDouble;
+        final boolean zero;
+
+        private Rate(BigDecimal monthly) {
+            this.monthly = monthly;
+            this.monthlyDouble = monthly.doubleValue();
+            this.zero = monthly.signum() == 0;
+        }
+
+        public static Rate ofAnnualPercent(BigDecimal annualPercent) {
+            BigDecimal annual = annualPercent == null ? BigDecimal.ZERO : annualPercent;
+            return new Rate(annual.divide(TWELVE, MC).divide(HUNDRED, MC));
+        }
+
+        public boolean isZero() { return zero; }
+
+        /** Проценты за месяц с остатка, HALF_UP до копейки */
+        public long interestCents(long balanceCents) {
+            if (zero || balanceCents == 0) return 0L;
+            double x = balanceCents * monthlyDouble;
+            double ax = Math.abs(x);
+            double floor = Math.floor(ax);
+            double frac = ax - floor;
+            double eps = Math.max(1e-9, ax * 1e-13);
+            if (Math.abs(frac - 0.5) < eps || ax >= 1e15) {
+                return exactInterestCents(balanceCents);
+            }
+            long r = (long) floor + (frac > 0.5 ? 1 : 0);
+            return x < 0 ? -r : r;
+        }
+
+        long exactInterestCents(long balanceCents) {
+            return toCents(BigDecimal.valueOf(balanceCents, 2).multiply(monthly, MC));
+        }
+
+        /** Аннуитетный платёж, HALF_UP до копейки (как в BigDecimal-пути) */
+        public long paymentCents(long principalCents, int n) {
+            BigDecimal principal = BigDecimal.valueOf(principalCents, 2);
+            if (zero) {
+                return toCents(principal.divide(new BigDecimal(n), MC));
+            }
+            BigDecimal pow = BigDecimal.ONE.add(monthly, MC).pow(n, MC);
+            BigDecimal numerator = principal.multiply(monthly, MC).multiply(pow, MC);
+            BigDecimal denominator = pow.subtract(BigDecimal.ONE, MC);
+            return toCents(numerator.divide(denominator, MC));
+        }
+
+        /** Коэффициент аннуитета r(1+r)^n / ((1+r)^n - 1), для нулевой ставки 1/n; считается в BigDecimal */
+        public double annuityFactor(int n) {
+            if (n <= 0) throw new IllegalArgumentException("termMonths must be > 0");
+            if (zero) {
+                return BigDecimal.ONE.divide(new BigDecimal(n), MC).doubleValue();
+            }
+            BigDecimal pow = BigDecimal.ONE.add(monthly, MC).pow(n, MC);
+            return monthly.multiply(pow, MC).divide(pow.subtract(BigDecimal.ONE, MC), MC).doubleValue();
+        }
+
+        /**
+         * Платёж по готовому коэффициенту {@link #annuityFactor(int)}: одно умножение в double.
+         * Если значение попало вплотную к половине копейки — точный {@link #paymentCents(long, int)}.
+         */
+        public long paymentCents(long principalCents, int n, double factor) {
+            double x = principalCents * factor;
+            double floor = Math.floor(x);
+            double frac = x - floor;
+            double eps = Math.max(1e-6, x * 1e-12);
+            if (Math.abs(frac - 0.5) < eps || x >= 1e15) {
+                return paymentCents(principalCents, n);
+            }
+            return (long) floor + (frac > 0.5 ? 1 : 0);
+        }
+    }
+
+    /** График в копейках: i-я строка — платёж с номером i + 1 */
+    public static final class Schedule {
+        public final int n;
+        public final long[] total;
+        public final long[] interest;
+        public final long[] principal;
+        public final long[] balanceAfter;
+
+        Schedule(int n) {
+            this.n = n;
+            this.total = new long[n];
+            this.interest = new long[n];
+            this.principal = new long[n];
+            this.balanceAfter = new long[n];
+        }
+
+        public long totalPayments() {
+            return sum(total);
+        }
+
+        public long totalInterest() {
+            return sum(interest);
+        }
+    }
+
+    public static Schedule schedule(long principalCents, int n, BigDecimal annualRatePercent) {
+        return schedule(principalCents, n, Rate.ofAnnualPercent(annualRatePercent));
+    }
+
+    public static Schedule schedule(long principalCents, int n, Rate rate) {
+        validate(principalCents, n);
+
+        long payment = rate.paymentCents(principalCents, n);
+        Schedule s = new Schedule(n);
+        long balance = principalCents;
+
+        for (int i = 0; i < n; i++) {
+            long interest = rate.interestCents(balance);
+            long principalPart = payment - interest;
+            long total = payment;
+
+            // на последнем платеже закрываем хвост из-за округлений
+            if (i == n - 1) {
+                principalPart = balance;
+                total = principalPart + interest;
+            }
+
+            balance = balance - principalPart;
+            if (balance < 0) balance = 0;
+
+            s.total[i] = total;
+            s.interest[i] = interest;
+            s.principal[i] = principalPart;
+            s.balanceAfter[i] = balance;
+        }
+        return s;
+    }
+
+    /** Последний платёж графика — без выделения массивов */
+    public static long lastPaymentCents(long principalCents, int n, Rate rate, long paymentCents) {
+        validate(principalCents, n);
+
+        long balance = principalCents;
+        for (int i = 0; i < n - 1; i++) {
+            balance = balance - (paymentCents - rate.interestCents(balance));
+            if (balance < 0) balance = 0;
+        }
+        return balance + rate.interestCents(balance);
+    }
+
+    /**
+     * Последние платежи сразу для нескольких сумм с одной ставкой и сроком (без выделения строк).
+     * Остатки идут одним массивом: на каждом месяце внутренний цикл проходит по всем суммам.
+     */
+    public static void lastPaymentsCents(long[] principalCents, long[] paymentCents, int n, Rate rate, long[] out) {
+        if (n <= 0) throw new IllegalArgumentException("termMonths must be > 0");
+        int m = principalCents.length;
+        long[] balance = out;
+        System.arraycopy(principalCents, 0, balance, 0, m);
+
+        for (int i = 0; i < n - 1; i++) {
+            for (int j = 0; j < m; j++) {
+                long b = balance[j] - (paymentCents[j] - rate.interestCents(balance[j]));
+                balance[j] = b < 0 ? 0 : b;
+            }
+        }
+        for (int j = 0; j < m; j++) {
+            balance[j] = balance[j] + rate.interestCents(balance[j]);
+        }
+    }
+
+    /** Сумма в копейки; null, если в сумме больше двух знаков после запятой или она вне ±MAX_CENTS */
+    public static Long toCentsExact(BigDecimal v) {
+        if (v == null) return null;
+        try {
+            long cents = v.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+            return Math.abs(cents) > MAX_CENTS ? null : cents;
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /** Сумма копеек; переполнение long — IllegalArgumentException */
+    static long sum(long... cents) {
+        long s = 0;
+        try {
+            for (long v : cents) s = Math.addExact(s, v);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("sum out of range", e);
+        }
+        return s;
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /** HALF_UP до копейки; вне ±MAX_CENTS (огромная сумма или ставка) — IllegalArgumentException */
+    static long toCents(BigDecimal v) {
+        BigDecimal scaled = v.setScale(2, RoundingMode.HALF_UP);
+        if (scaled.unscaledValue().bitLength() > 62 || Math.abs(scaled.unscaledValue().longValue()) > MAX_CENTS) {
+            throw new IllegalArgumentException("amount out of range: " + scaled.toPlainString());
+        }
+        return scaled.unscaledValue().longValue();
+    }
+
+    private static void validate(long principalCents, int n) {
+        if (n <= 0) throw new IllegalArgumentException("termMonths must be > 0");
+        if (principalCents <= 0) throw new IllegalArgumentException("financedAmount must be > 0");
+        if (principalCents > MAX_CENTS) throw new IllegalArgumentException("financedAmount out of range");
+    }
+}
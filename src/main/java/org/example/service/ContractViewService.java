@@ -0,0 +1,140 @@
+package org.example.service;
+
+import org.example.domain.ActualPayment;
+import org.example.domain.LeaseApplication;
+import org.example.domain.LeaseContract;
+import org.example.domain.PaymentScheduleItem;
+import org.example.repo.ActualPaymentRepository;
+import org.example.repo.LeaseContractRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read model карточки договора: договор со сторонами, график и платежи читаются один раз,
+ * план/факт/просрочка и данные графиков считаются в памяти по этим же спискам.
+ * Кормит и страницу договора, и /contracts/{id}/chart-data.
+ */
+@Service
+public class ContractViewService {
+
+    private final LeaseContractRepository contractRepo;
+    private final ActualPaymentRepository paymentRepo;
+    private final ScheduleProvider schedules;
+
+    public ContractViewService(LeaseContractRepository contractRepo,
+                               ActualPaymentRepository paymentRepo,
+                               ScheduleProvider schedules) {
+        this.contractRepo = contractRepo;
+        this.paymentRepo = paymentRepo;
+        this.schedules = schedules;
+    }
+
+    @Transactional(readOnly = true)
+    public ContractView load(Long contractId, LocalDate today) {
+        LeaseContract c = contractRepo.findWithPartiesById(contractId).orElseThrow(IllegalArgumentException::new);
+        List<PaymentScheduleItem> schedule = schedules.scheduleFor(c.getApplication());
+        List<ActualPayment> payments = paymentRepo.findByContractIdOrderByPaymentDateAsc(contractId);
+        return new ContractView(c, schedule, payments, today);
+    }
+
+    public static class ContractView {
+        // "0.00", а не "0": все суммы страницы и chart-data в одном масштабе
+        private static final BigDecimal ZERO = AnnuityCentsEngine.fromCents(0);
+
+        private final LeaseContract contract;
+        private final List<PaymentScheduleItem> schedule;
+        private final List<ActualPayment> payments;
+
+        private final BigDecimal plannedToDate;
+        private final BigDecimal paidToDate;
+
+        ContractView(LeaseContract contract, List<PaymentScheduleItem> schedule,
+                     List<ActualPayment> payments, LocalDate today) {
+            this.contract = contract;
+            this.schedule = schedule;
+            this.payments = payments;
+
+            BigDecimal planned = ZERO;
+            for (PaymentScheduleItem p : schedule) {
+                if (p.getDueDate() != null && !p.getDueDate().isAfter(today)) {
+                    planned = planned.add(nvl(p.getPaymentTotal()));
+                }
+            }
+            BigDecimal paid = ZERO;
+            for (ActualPayment p : payments) {
+                if (p.getPaymentDate() != null && !p.getPaymentDate().isAfter(today)) {
+                    paid = paid.add(nvl(p.getAmount()));
+                }
+            }
+            this.plannedToDate = planned;
+            this.paidToDate = paid;
+        }
+
+        public LeaseContract getContract() { return contract; }
+        public LeaseApplication getApplication() { return contract.getApplication(); }
+        public List<PaymentScheduleItem> getSchedule() { return schedule; }
+        public List<ActualPayment> getPayments() { return payments; }
+
+        public BigDecimal getPlannedToDate() { return plannedToDate; }
+        public BigDecimal getPaidToDate() { return paidToDate; }
+
+        public BigDecimal getArrearsToDate() {
+            BigDecimal diff = plannedToDate.subtract(paidToDate);
+            return diff.signum() > 0 ? diff : ZERO;
+        }
+
+        public BigDecimal getOverpaidToDate() {
+            BigDecimal diff = plannedToDate.subtract(paidToDate);
+            return diff.signum() < 0 ? diff.abs() : ZERO;
+        }
+
+        /** Накопительные план/факт и задолженность на каждую дату графика (оплаты — по дату платежа включительно) */
+        public Map<String, Object> chartData() {
+            List<String> labels = new ArrayList<>();
+            List<BigDecimal> plannedCum = new ArrayList<>();
+            List<BigDecimal> paidCum = new ArrayList<>();
+            List<BigDecimal> arrears = new ArrayList<>();
+
+            BigDecimal planSum = ZERO;
+            BigDecimal paidSum = ZERO;
+
+            int fi = 0;
+
+            for (PaymentScheduleItem p : schedule) {
+                labels.add(p.getDueDate() != null ? p.getDueDate().toString() : "");
+
+                planSum = planSum.add(nvl(p.getPaymentTotal()));
+                plannedCum.add(planSum);
+
+                while (fi < payments.size()
+                        && payments.get(fi).getPaymentDate() != null
+                        && p.getDueDate() != null
+                        && !payments.get(fi).getPaymentDate().isAfter(p.getDueDate())) {
+                    paidSum = paidSum.add(nvl(payments.get(fi).getAmount()));
+                    fi++;
+                }
+                paidCum.add(paidSum);
+
+                arrears.add(planSum.subtract(paidSum));
+            }
+
+            Map<String, Object> res = new HashMap<>();
+            res.put("labels", labels);
+            res.put("plannedCum", plannedCum);
+            res.put("paidCum", paidCum);
+            res.put("arrears", arrears);
+            return res;
+        }
+
+        private static BigDecimal nvl(BigDecimal v) {
+            return v == null ? ZERO : v;
+        }
+    }
+}
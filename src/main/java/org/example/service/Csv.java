@@ -0,0 +1,39 @@
+package org.example.service;
+
+/**
+ * Текстовые поля CSV с разделителем ';' (RFC 4180): поле с разделителем, кавычкой
+ * или переводом строки берётся в кавычки, кавычки внутри удваиваются. null — пустое поле.
+ */
+public final class Csv {
+
+    public static final char SEPARATOR = ';';
+
+    private Csv() {
+    }
+
+    public static StringBuilder appendField(StringBuilder sb, String v) {
+        if (v == null) return sb;
+        if (!needsQuotes(v)) return sb.append(v);
+
+        sb.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    public static String field(String v) {
+        if (v == null) return "";
+        return needsQuotes(v) ? appendField(new StringBuilder(v.length() + 8), v).toString() : v;
+    }
+
+    private static boolean needsQuotes(String v) {
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == SEPARATOR || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+}
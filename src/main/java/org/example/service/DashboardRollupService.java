@@ -0,0 +1,185 @@
+package org.example.service;
+
+import org.example.repo.ActualPaymentRepository;
+import org.example.repo.LeaseApplicationRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Дневные свёртки для дашборда: число заявок по дате создания и сумма оплат (в копейках) по дате платежа.
+ *
+ * Строятся при первом обращении двумя GROUP BY по дате и дальше обновляются
+ * по событиям создания заявки и сохранения платежа. Серии за месяц/квартал/год
+ * собираются из дневных свёрток, поэтому стоимость зависит от длины окна, а не от размера таблиц.
+ *
+ * Загрузка идёт без блокировки. Событие приходит уже после коммита строки, поэтому загрузка,
+ * пересёкшаяся с записью, могла бы посчитать строку и из БД, и по событию. Запись заявок
+ * и платежей вместе с публикацией события оборачивается в {@link #write}: счётчик записей
+ * снимается до загрузки, и если за время загрузки запись началась или ещё шла, результат
+ * не ставится — загрузка повторяется (после MAX_LOAD_ATTEMPTS отдаётся без кэширования).
+ */
+@Service
+public class DashboardRollupService {
+
+    static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final LeaseApplicationRepository appRepo;
+    private final ActualPaymentRepository paymentRepo;
+
+    // epochDay -> значение; null — ещё не загружено
+    private Rollup rollup;
+
+    private final Object loadLock = new Object();
+
+    // начатые записи и ещё не завершённые (под this)
+    private long writes;
+    private int writesInFlight;
+
+    public DashboardRollupService(LeaseApplicationRepository appRepo,
+                                  ActualPaymentRepository paymentRepo) {
+        this.appRepo = appRepo;
+        this.paymentRepo = paymentRepo;
+    }
+
+    private static final class Rollup {
+        final TreeMap<Long, Long> appsByDay = new TreeMap<Long, Long>();
+        final TreeMap<Long, Long> paidByDay = new TreeMap<Long, Long>();
+    }
+
+    /** Заявок по дням в [from, to]; элемент i — день from + i */
+    public long[] appsPerDay(LocalDate from, LocalDate to) {
+        Rollup r = ensureLoaded();
+        synchronized (this) {
+            return perDay(r.appsByDay, from, to);
+        }
+    }
+
+    /** Оплат (в копейках) по дням в [from, to]; элемент i — день from + i */
+    public long[] paidCentsPerDay(LocalDate from, LocalDate to) {
+        Rollup r = ensureLoaded();
+        synchronized (this) {
+            return perDay(r.paidByDay, from, to);
+        }
+    }
+
+    /**
+     * Запись заявок/платежей вместе с публикацией событий о них:
+     * пока она идёт, загруженные свёртки не ставятся в кэш.
+     */
+    public <T> T write(Supplier<T> saveAndPublish) {
+        synchronized (this) {
+            writes++;
+            writesInFlight++;
+        }
+        try {
+            return saveAndPublish.get();
+        } finally {
+            synchronized (this) {
+                writesInFlight--;
+            }
+        }
+    }
+
+    /** Учесть созданную заявку (вызывать после save) */
+    public synchronized void recordApplication(LocalDate createdDate) {
+        if (rollup == null || createdDate == null) return; // не загружено — всё прочитается из БД
+        add(rollup.appsByDay, createdDate.toEpochDay(), 1L);
+    }
+
+    /** Учесть сохранённый платёж (вызывать после save) */
+    public synchronized void recordPayment(LocalDate paymentDate, BigDecimal amount) {
+        if (rollup == null || paymentDate == null || amount == null) return;
+        add(rollup.paidByDay, paymentDate.toEpochDay(), cents(amount));
+    }
+
+    @EventListener
+    public void onApplication(LeaseApplicationEvent e) {
+        if (e.getType() == LeaseApplicationEvent.Type.CREATED) recordApplication(e.getCreatedDate());
+    }
+
+    @EventListener
+    public void onPaymentRecorded(PaymentRecordedEvent e) {
+        recordPayment(e.getPaymentDate(), e.getAmount());
+    }
+
+    @EventListener
+    public void onDataSeeded(DataSeededEvent e) {
+        reset();
+    }
+
+    /** Сбросить свёртки — следующее обращение перечитает их из БД */
+    public synchronized void reset() {
+        writes++;
+        rollup = null;
+    }
+
+    // два GROUP BY вне монитора сервиса (события не ждут); параллельные загрузки — по одной через loadLock;
+    // результат ставится, только если записей за это время не было
+    private Rollup ensureLoaded() {
+        synchronized (this) {
+            if (rollup != null) return rollup;
+        }
+        synchronized (loadLock) {
+            Rollup loaded = null;
+            for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+                long version;
+                boolean quiet;
+                synchronized (this) {
+                    if (rollup != null) return rollup;
+                    version = writes;
+                    quiet = writesInFlight == 0;
+                }
+
+                loaded = load();
+
+                synchronized (this) {
+                    if (quiet && version == writes && writesInFlight == 0) {
+                        rollup = loaded;
+                        return loaded;
+                    }
+                }
+            }
+            return loaded; // записи идут без перерыва — отдаём как есть, без кэширования
+        }
+    }
+
+    private Rollup load() {
+        Rollup r = new Rollup();
+        for (LeaseApplicationRepository.DayCount dc : appRepo.countGroupedByCreatedDate()) {
+            add(r.appsByDay, dc.getDay().toEpochDay(), dc.getCnt());
+        }
+        for (ActualPaymentRepository.DaySum ds : paymentRepo.sumGroupedByPaymentDate()) {
+            add(r.paidByDay, ds.getDay().toEpochDay(), cents(ds.getTotal()));
+        }
+        return r;
+    }
+
+    private static long[] perDay(TreeMap<Long, Long> byDay, LocalDate from, LocalDate to) {
+        long first = from.toEpochDay();
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        long[] res = new long[Math.max(days, 0)];
+        if (days <= 0) return res;
+
+        for (Map.Entry<Long, Long> e : byDay.subMap(first, true, to.toEpochDay(), true).entrySet()) {
+            res[(int) (e.getKey() - first)] = e.getValue();
+        }
+        return res;
+    }
+
+    private static void add(TreeMap<Long, Long> byDay, long day, long value) {
+        Long cur = byDay.get(day);
+        byDay.put(day, cur == null ? value : cur + value);
+    }
+
+    private static long cents(BigDecimal v) {
+        return v == null ? 0L : v.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.service;
+
+/** Начальные данные загружены (сидер или генератор) — кэши и свёртки нужно перечитать */
+public class DataSeededEvent {
+
+    private final long millis;
+
+    public DataSeededEvent(long millis) {
+        this.millis = millis;
+    }
+
+    public long getMillis() { return millis; }
+}
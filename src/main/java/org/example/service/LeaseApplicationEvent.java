@@ -0,0 +1,25 @@
+package org.example.service;
+
+import java.time.LocalDate;
+
+/** Заявка создана / изменена / сменила статус (публикуется после сохранения) */
+public class LeaseApplicationEvent {
+
+    public enum Type {
+        CREATED, UPDATED, APPROVED, REJECTED, CONTRACTED
+    }
+
+    private final Type type;
+    private final Long applicationId;
+    private final LocalDate createdDate;
+
+    public LeaseApplicationEvent(Type type, Long applicationId, LocalDate createdDate) {
+        this.type = type;
+        this.applicationId = applicationId;
+        this.createdDate = createdDate;
+    }
+
+    public Type getType() { return type; }
+    public Long getApplicationId() { return applicationId; }
+    public LocalDate getCreatedDate() { return createdDate; }
+}
@@ -1,7 +1,14 @@
 package org.example.service;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import org.example.domain.LeaseApplication;
 import org.example.domain.PaymentScheduleItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -10,13 +17,89 @@ import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 public class LeasingCalculationService {
 
     private static final MathContext MC = new MathContext(20, RoundingMode.HALF_UP);
 
-    public List<PaymentScheduleItem> buildAnnuitySchedule(LeaseApplication app) {
+    static final int DEFAULT_TEMPLATE_CACHE_SIZE = 1000;
+
+    // верхние границы корзин срока для тега term таймера расчёта графика
+    private static final int[] TERM_BUCKET_LIMITS = {12, 36, 60, 120};
+    private static final String[] TERM_BUCKETS = {"1-12", "13-36", "37-60", "61-120", "121+"};
+
+    // суммы графика зависят только от (сумма, срок, ставка); даты подставляются при копировании
+    private final LruCache<TemplateKey, ScheduleTemplate> templates;
+
+    // leasing.calc.schedule по корзинам срока (последний — некорректный срок)
+    private final Timer[] scheduleTimers;
+
+    /** Без метрик (бенчмарки, ручное создание) */
+    public LeasingCalculationService() {
+        this(DEFAULT_TEMPLATE_CACHE_SIZE, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public LeasingCalculationService(@Value("${leasing.calc.template-cache-size:1000}") int templateCacheSize,
+                                     MeterRegistry meters) {
+        this.templates = new LruCache<TemplateKey, ScheduleTemplate>(templateCacheSize);
+
+        this.scheduleTimers = new Timer[TERM_BUCKETS.length + 1];
+        for (int i = 0; i <= TERM_BUCKETS.length; i++) {
+            scheduleTimers[i] = Timer.builder("leasing.calc.schedule")
+                    .description("buildAnnuitySchedule: расчёт или копия шаблона графика")
+                    .tag("term", i < TERM_BUCKETS.length ? TERM_BUCKETS[i] : "invalid")
+                    .register(meters);
+        }
+
+        Gauge.builder("leasing.calc.template.cache.size", templates, LruCache::size)
+                .description("Шаблонов графика в LRU")
+                .register(meters);
+        FunctionCounter.builder("leasing.calc.template.cache.requests", templates, LruCache::getHits)
+                .tag("result", "hit")
+                .register(meters);
+        FunctionCounter.builder("leasing.calc.template.cache.requests", templates, LruCache::getMisses)
+                .tag("result", "miss")
+                .register(meters);
+        FunctionCounter.builder("leasing.calc.template.cache.evictions", templates, LruCache::getEvictions)
+                .register(meters);
+    }
+
+    /**
+     * График заявки: копия неизменяемого шаблона из LRU по (сумма, срок, ставка),
+     * строки привязаны к заявке, даты — от её даты начала. Промах — считаем и кладём шаблон.
+     */
+    public List<PaymentScheduleItem> buildAnnuitySchedule(final LeaseApplication app) {
+        return scheduleTimers[termBucket(app.getTermMonths())].record(() -> buildFromTemplate(app));
+    }
+
+    private List<PaymentScheduleItem> buildFromTemplate(LeaseApplication app) {
+        TemplateKey key = new TemplateKey(app);
+        ScheduleTemplate t = templates.get(key);
+        if (t == null) {
+            t = computeTemplate(app);
+            templates.put(key, t);
+        }
+        return t.bind(app);
+    }
+
+    /** Индекс корзины срока в scheduleTimers; срок не задан или <= 0 — последний ("invalid") */
+    static int termBucket(Integer termMonths) {
+        if (termMonths == null || termMonths <= 0) return TERM_BUCKETS.length;
+        for (int i = 0; i < TERM_BUCKET_LIMITS.length; i++) {
+            if (termMonths <= TERM_BUCKET_LIMITS[i]) return i;
+        }
+        return TERM_BUCKET_LIMITS.length;
+    }
+
+    public LruCache.Stats getTemplateCacheStats() {
+        return templates.stats();
+    }
+
+    /** Эталонный расчёт в BigDecimal, без кэша (ему обязаны совпадать шаблоны и копеечный путь) */
+    public List<PaymentScheduleItem> computeAnnuitySchedule(LeaseApplication app) {
         BigDecimal principal = nvl(app.getFinancedAmount());
         int n = app.getTermMonths() == null ? 0 : app.getTermMonths();
         BigDecimal annual = nvl(app.getAnnualRatePercent());
@@ -73,6 +156,130 @@ public class LeasingCalculationService {
         return items;
     }
 
+    /**
+     * Тот же график, но в копейках (см. {@link AnnuityCentsEngine}).
+     * Сумма финансирования должна быть в копейках — иначе используйте buildAnnuitySchedule.
+     */
+    public AnnuityCentsEngine.Schedule buildAnnuityScheduleCents(LeaseApplication app) {
+        int n = app.getTermMonths() == null ? 0 : app.getTermMonths();
+        if (n <= 0) throw new IllegalArgumentException("termMonths must be > 0");
+
+        Long principal = AnnuityCentsEngine.toCentsExact(nvl(app.getFinancedAmount()));
+        if (principal == null) throw new IllegalArgumentException("financedAmount must have at most 2 decimal places and fit AnnuityCentsEngine.MAX_CENTS");
+        if (principal <= 0) throw new IllegalArgumentException("financedAmount must be > 0");
+
+        return AnnuityCentsEngine.schedule(principal, n, app.getAnnualRatePercent());
+    }
+
+    /** Строки графика из копеечного расчёта */
+    public List<PaymentScheduleItem> toItems(AnnuityCentsEngine.Schedule s, LocalDate startDate) {
+        LocalDate start = startDate == null ? LocalDate.now() : startDate;
+
+        List<PaymentScheduleItem> items = new ArrayList<PaymentScheduleItem>(s.n);
+        for (int i = 0; i < s.n; i++) {
+            PaymentScheduleItem row = new PaymentScheduleItem();
+            row.setPaymentNo(i + 1);
+            row.setDueDate(start.plusMonths(i + 1));
+            row.setPaymentTotal(AnnuityCentsEngine.fromCents(s.total[i]));
+            row.setPaymentInterest(AnnuityCentsEngine.fromCents(s.interest[i]));
+            row.setPaymentPrincipal(AnnuityCentsEngine.fromCents(s.principal[i]));
+            row.setBalanceAfter(AnnuityCentsEngine.fromCents(s.balanceAfter[i]));
+            items.add(row);
+        }
+        return items;
+    }
+
+    // шаблон считается копеечным путём (совпадает с эталоном до копейки), если сумма в копейках точна
+    private ScheduleTemplate computeTemplate(LeaseApplication app) {
+        if (AnnuityCentsEngine.toCentsExact(app.getFinancedAmount()) != null) {
+            return ScheduleTemplate.of(buildAnnuityScheduleCents(app));
+        }
+        return ScheduleTemplate.of(computeAnnuitySchedule(app));
+    }
+
+    static final class TemplateKey {
+        private final BigDecimal financedAmount;
+        private final Integer termMonths;
+        private final BigDecimal annualRatePercent;
+
+        TemplateKey(LeaseApplication app) {
+            // 100 и 100.00 — один шаблон; ставка null считается нулевой, как в расчёте
+            this.financedAmount = app.getFinancedAmount() == null ? null : app.getFinancedAmount().stripTrailingZeros();
+            this.termMonths = app.getTermMonths();
+            this.annualRatePercent = nvl(app.getAnnualRatePercent()).stripTrailingZeros();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TemplateKey)) return false;
+            TemplateKey k = (TemplateKey) o;
+            return Objects.equals(financedAmount, k.financedAmount)
+                    && Objects.equals(termMonths, k.termMonths)
+                    && Objects.equals(annualRatePercent, k.annualRatePercent);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(financedAmount, termMonths, annualRatePercent);
+        }
+    }
+
+    /** Суммы графика без дат и заявки; BigDecimal неизменяемы, поэтому копия делит их с шаблоном */
+    static final class ScheduleTemplate {
+        private final BigDecimal[] total;
+        private final BigDecimal[] interest;
+        private final BigDecimal[] principal;
+        private final BigDecimal[] balanceAfter;
+
+        private ScheduleTemplate(int n) {
+            total = new BigDecimal[n];
+            interest = new BigDecimal[n];
+            principal = new BigDecimal[n];
+            balanceAfter = new BigDecimal[n];
+        }
+
+        static ScheduleTemplate of(AnnuityCentsEngine.Schedule s) {
+            ScheduleTemplate t = new ScheduleTemplate(s.n);
+            for (int i = 0; i < s.n; i++) {
+                t.total[i] = AnnuityCentsEngine.fromCents(s.total[i]);
+                t.interest[i] = AnnuityCentsEngine.fromCents(s.interest[i]);
+                t.principal[i] = AnnuityCentsEngine.fromCents(s.principal[i]);
+                t.balanceAfter[i] = AnnuityCentsEngine.fromCents(s.balanceAfter[i]);
+            }
+            return t;
+        }
+
+        static ScheduleTemplate of(List<PaymentScheduleItem> rows) {
+            ScheduleTemplate t = new ScheduleTemplate(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                PaymentScheduleItem r = rows.get(i);
+                t.total[i] = r.getPaymentTotal();
+                t.interest[i] = r.getPaymentInterest();
+                t.principal[i] = r.getPaymentPrincipal();
+                t.balanceAfter[i] = r.getBalanceAfter();
+            }
+            return t;
+        }
+
+        List<PaymentScheduleItem> bind(LeaseApplication app) {
+            LocalDate start = app.getStartDate() == null ? LocalDate.now() : app.getStartDate();
+            List<PaymentScheduleItem> items = new ArrayList<PaymentScheduleItem>(total.length);
+            for (int i = 0; i < total.length; i++) {
+                PaymentScheduleItem row = new PaymentScheduleItem();
+                row.setApplication(app);
+                row.setPaymentNo(i + 1);
+                row.setDueDate(start.plusMonths(i + 1));
+                row.setPaymentTotal(total[i]);
+                row.setPaymentInterest(interest[i]);
+                row.setPaymentPrincipal(principal[i]);
+                row.setBalanceAfter(balanceAfter[i]);
+                items.add(row);
+            }
+            return items;
+        }
+    }
+
     private static BigDecimal money(BigDecimal v) {
         return v.setScale(2, RoundingMode.HALF_UP);
     }
@@ -0,0 +1,484 @@
+package org.example.service;
+
+import org.example.domain.ActualPayment;
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор данных для нагрузочного тестирования (вместо 20 демо-заявок {@link org.example.config.DemoDataSeeder}).
+ *
+ * Включается leasing.datagen.enabled=true, объёмы — leasing.datagen.clients/assets/applications.
+ * Распределения: клиенты с "хвостом" (у части клиентов много заявок), цены объектов логнормальные,
+ * сроки и ставки по весам, портфель растёт к сегодняшнему дню, платёжная дисциплина —
+ * добросовестные / с просрочками / дефолт.
+ *
+ * Строки пишутся JDBC-батчами мимо Hibernate: порции по CHUNK_SIZE генерируются параллельно
+ * на leasing.datagen.threads потоках, каждая — в своей транзакции. Случайность порции задаётся
+ * seed и номером порции, поэтому результат не зависит от порядка выполнения.
+ * id клиентов, объектов, заявок и договоров выдаются диапазонами (identity-счётчики
+ * передвигаются в конце), id графика и платежей — из их pooled-последовательностей.
+ */
+@Service
+public class LoadDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadDataGenerator.class);
+
+    static final int CHUNK_SIZE = 2000;
+    static final int BATCH_SIZE = 1000;
+
+    private static final int SUPPLIERS = 40;
+    private static final int INSURERS = 8;
+
+    private static final int[] TERMS = {12, 24, 36, 48, 60};
+    private static final int[] TERM_WEIGHTS = {15, 25, 35, 15, 10};
+
+    private static final String INSERT_CLIENT =
+            "INSERT INTO client (id, name, client_type, identifier, phone, email) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ASSET =
+            "INSERT INTO leased_asset (id, asset_type, name, serial_number, price, supplier_id, insurer_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_APPLICATION =
+            "INSERT INTO lease_application (id, application_number, created_date, client_id, asset_id, asset_price, " +
+            "advance_amount, financed_amount, term_months, annual_rate_percent, start_date, status, rejection_reason, " +
+            "schedule_manual) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE)";
+    private static final String INSERT_CONTRACT =
+            "INSERT INTO lease_contract (id, contract_number, contract_date, application_id, financed_amount, " +
+            "term_months, annual_rate_percent, start_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SCHEDULE_ROW =
+            "INSERT INTO payment_schedule_item " +
+            "(id, application_id, payment_no, due_date, payment_total, payment_interest, payment_principal, balance_after) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PAYMENT =
+            "INSERT INTO actual_payment (id, contract_id, payment_date, amount, comment) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ScheduleProvider schedules;
+
+    private final boolean enabled;
+    private final int clients;
+    private final int assets;
+    private final int applications;
+    private final int threads;
+    private final long seed;
+    private final int historyDays;
+
+    public LoadDataGenerator(JdbcTemplate jdbc,
+                             TransactionTemplate tx,
+                             ScheduleProvider schedules,
+                             @Value("${leasing.datagen.enabled:false}") boolean enabled,
+                             @Value("${leasing.datagen.clients:50000}") int clients,
+                             @Value("${leasing.datagen.assets:80000}") int assets,
+                             @Value("${leasing.datagen.applications:200000}") int applications,
+                             @Value("${leasing.datagen.threads:0}") int threads,
+                             @Value("${leasing.datagen.seed:42}") long seed,
+                             @Value("${leasing.datagen.history-days:1095}") int historyDays) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.schedules = schedules;
+        this.enabled = enabled;
+        this.clients = Math.max(1, clients);
+        this.assets = Math.max(1, assets);
+        this.applications = Math.max(0, applications);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.seed = seed;
+        this.historyDays = Math.max(1, historyDays);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static class Result {
+        private long clients;
+        private long assets;
+        private long applications;
+        private long contracts;
+        private long scheduleRows;
+        private long payments;
+        private long millis;
+
+        public long getClients() { return clients; }
+        public long getAssets() { return assets; }
+        public long getApplications() { return applications; }
+        public long getContracts() { return contracts; }
+        public long getScheduleRows() { return scheduleRows; }
+        public long getPayments() { return payments; }
+        public long getMillis() { return millis; }
+    }
+
+    public Result generate() {
+        long t0 = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+
+        final long[] supplierIds = insertReference("supplier", SUPPLIERS, "Поставщик");
+        final long[] insurerIds = insertReference("insurance_company", INSURERS, "Страховая");
+
+        final long clientBase = nextId("client");
+        final long assetBase = nextId("leased_asset");
+        final long appBase = nextId("lease_application");
+        final long contractBase = nextId("lease_contract");
+
+        final Counters counters = new Counters();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // клиенты и объекты — до заявок (внешние ключи)
+            List<Future<?>> refs = new ArrayList<Future<?>>();
+            for (int from = 0; from < clients; from += CHUNK_SIZE) {
+                final int f = from;
+                final int to = Math.min(clients, from + CHUNK_SIZE);
+                refs.add(pool.submit(() -> insertClients(clientBase, f, to)));
+            }
+            for (int from = 0; from < assets; from += CHUNK_SIZE) {
+                final int f = from;
+                final int to = Math.min(assets, from + CHUNK_SIZE);
+                refs.add(pool.submit(() -> insertAssets(assetBase, f, to, supplierIds, insurerIds)));
+            }
+            await(refs);
+
+            List<Future<?>> apps = new ArrayList<Future<?>>();
+            final boolean storeSchedules = !schedules.isDerivedMode();
+            for (int from = 0; from < applications; from += CHUNK_SIZE) {
+                final int f = from;
+                final int to = Math.min(applications, from + CHUNK_SIZE);
+                apps.add(pool.submit(() -> {
+                    ChunkIds ids = new ChunkIds(clientBase, assetBase, appBase, contractBase);
+                    tx.executeWithoutResult(status -> insertApplications(ids, f, to, today, storeSchedules, counters));
+                    long done = counters.chunks.incrementAndGet() * CHUNK_SIZE;
+                    if (done % (CHUNK_SIZE * 50L) == 0) {
+                        log.info("datagen: {}/{} applications", Math.min(done, applications), applications);
+                    }
+                }));
+            }
+            await(apps);
+        } finally {
+            pool.shutdown();
+        }
+
+        restartIdentity("client");
+        restartIdentity("leased_asset");
+        restartIdentity("lease_application");
+        restartIdentity("lease_contract");
+
+        Result res = new Result();
+        res.clients = clients;
+        res.assets = assets;
+        res.applications = applications;
+        res.contracts = counters.contracts.get();
+        res.scheduleRows = counters.scheduleRows.get();
+        res.payments = counters.payments.get();
+        res.millis = System.currentTimeMillis() - t0;
+        log.info("datagen: {} clients, {} assets, {} applications, {} contracts, {} schedule rows, {} payments in {} ms",
+                res.clients, res.assets, res.applications, res.contracts, res.scheduleRows, res.payments, res.millis);
+        return res;
+    }
+
+    // ---------- reference data ----------
+
+    private long[] insertReference(String table, int count, String namePrefix) {
+        long base = nextId(table);
+        List<Object[]> rows = new ArrayList<Object[]>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{base + i, namePrefix + " " + (i + 1), String.valueOf(7700000000L + base + i),
+                    "+7-495-000-" + String.format("%02d-%02d", i / 100, i % 100), "gen" + (base + i) + "@" + table + ".ru"});
+        }
+        jdbc.batchUpdate("INSERT INTO " + table + " (id, name, inn, phone, email) VALUES (?, ?, ?, ?, ?)", rows);
+        restartIdentity(table);
+
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) ids[i] = base + i;
+        return ids;
+    }
+
+    private void insertClients(long base, int from, int to) {
+        Random rnd = chunkRandom(1, from);
+        List<Object[]> rows = new ArrayList<Object[]>(to - from);
+        for (int i = from; i < to; i++) {
+            long id = base + i;
+            boolean company = rnd.nextInt(100) < 70;
+            rows.add(new Object[]{
+                    id,
+                    company ? "ООО Клиент-" + id : "Клиент ФЛ-" + id,
+                    company ? "UL" : "FL",
+                    company ? String.valueOf(7700000000L + id) : String.format("%04d %06d", 4000 + rnd.nextInt(5000), rnd.nextInt(1000000)),
+                    String.format("+7-9%02d-%03d-%02d-%02d", rnd.nextInt(100), rnd.nextInt(1000), rnd.nextInt(100), rnd.nextInt(100)),
+                    "client" + id + "@gen.ru"
+            });
+        }
+        batchInsert(INSERT_CLIENT, rows);
+    }
+
+    private void insertAssets(long base, int from, int to, long[] supplierIds, long[] insurerIds) {
+        Random rnd = chunkRandom(2, from);
+        List<Object[]> rows = new ArrayList<Object[]>(to - from);
+        for (int i = from; i < to; i++) {
+            long id = base + i;
+            boolean auto = rnd.nextInt(100) < 60;
+            // логнормальная цена: авто ~3 млн, оборудование ~5 млн с широким разбросом, шаг 1000
+            double median = auto ? 3000000 : 5000000;
+            double sigma = auto ? 0.45 : 0.8;
+            long price = Math.max(100L, Math.round(median * Math.exp(sigma * rnd.nextGaussian()) / 1000)) * 1000;
+            rows.add(new Object[]{
+                    id,
+                    auto ? "AUTO" : "EQUIPMENT",
+                    (auto ? "Авто " : "Оборудование ") + id,
+                    (auto ? "VIN-GEN-" : "SN-GEN-") + id,
+                    BigDecimal.valueOf(price, 0).setScale(2),
+                    supplierIds[rnd.nextInt(supplierIds.length)],
+                    insurerIds[rnd.nextInt(insurerIds.length)]
+            });
+        }
+        batchInsert(INSERT_ASSET, rows);
+    }
+
+    // ---------- applications, contracts, schedules, payments ----------
+
+    private static class ChunkIds {
+        final long clientBase;
+        final long assetBase;
+        final long appBase;
+        final long contractBase;
+
+        ChunkIds(long clientBase, long assetBase, long appBase, long contractBase) {
+            this.clientBase = clientBase;
+            this.assetBase = assetBase;
+            this.appBase = appBase;
+            this.contractBase = contractBase;
+        }
+    }
+
+    private static class Counters {
+        final AtomicLong chunks = new AtomicLong();
+        final AtomicLong contracts = new AtomicLong();
+        final AtomicLong scheduleRows = new AtomicLong();
+        final AtomicLong payments = new AtomicLong();
+    }
+
+    /** Заявка порции с посчитанным графиком (строки графика пишутся после заявок) */
+    private static class GeneratedSchedule {
+        final long applicationId;
+        final LocalDate start;
+        final AnnuityCentsEngine.Schedule schedule;
+
+        GeneratedSchedule(long applicationId, LocalDate start, AnnuityCentsEngine.Schedule schedule) {
+            this.applicationId = applicationId;
+            this.start = start;
+            this.schedule = schedule;
+        }
+    }
+
+    private void insertApplications(ChunkIds ids, int from, int to, LocalDate today,
+                                    boolean storeSchedules, Counters counters) {
+        Random rnd = chunkRandom(3, from);
+        Map<BigDecimal, AnnuityCentsEngine.Rate> rates = new HashMap<BigDecimal, AnnuityCentsEngine.Rate>();
+        PooledSequence paymentIds = new PooledSequence(jdbc, ActualPayment.ID_SEQUENCE, ActualPayment.ID_ALLOCATION);
+
+        List<Object[]> appRows = new ArrayList<Object[]>(to - from);
+        List<Object[]> contractRows = new ArrayList<Object[]>();
+        List<Object[]> paymentRows = new ArrayList<Object[]>();
+        List<GeneratedSchedule> generated = new ArrayList<GeneratedSchedule>(storeSchedules ? to - from : 0);
+
+        // 1) генерация порции в памяти
+        for (int i = from; i < to; i++) {
+            long appId = ids.appBase + i;
+
+            // у части клиентов много заявок: индекс смещён к началу
+            double u = rnd.nextDouble();
+            long clientId = ids.clientBase + (long) (clients * u * u);
+            long assetId = ids.assetBase + rnd.nextInt(assets);
+
+            // портфель растёт: свежих заявок больше
+            double back = rnd.nextDouble();
+            LocalDate created = today.minusDays((long) (historyDays * back * back));
+            LocalDate start = created.plusDays(rnd.nextInt(15));
+
+            long priceCents = 100L * 1000 * Math.max(100L, Math.round(3000 * Math.exp(0.6 * rnd.nextGaussian())));
+            long advanceCents = priceCents * rnd.nextInt(31) / 100; // 0..30%
+            long financedCents = priceCents - advanceCents;
+
+            int term = weighted(rnd, TERMS, TERM_WEIGHTS);
+            BigDecimal rate = rate(rnd, term);
+
+            LeaseApplication.Status status;
+            String rejection = null;
+            int roll = rnd.nextInt(100);
+            if (created.isAfter(today.minusDays(14))) {
+                status = roll < 60 ? LeaseApplication.Status.NEW
+                        : roll < 85 ? LeaseApplication.Status.APPROVED
+                        : LeaseApplication.Status.REJECTED;
+            } else {
+                status = roll < 5 ? LeaseApplication.Status.NEW
+                        : roll < 75 ? LeaseApplication.Status.APPROVED
+                        : LeaseApplication.Status.REJECTED;
+            }
+            if (status == LeaseApplication.Status.REJECTED) {
+                rejection = rnd.nextBoolean() ? "Недостаточно документов" : "Отрицательное кредитное решение";
+            }
+            boolean contracted = status == LeaseApplication.Status.APPROVED && rnd.nextInt(100) < 90;
+            if (contracted) status = LeaseApplication.Status.CONTRACTED;
+
+            appRows.add(new Object[]{
+                    appId, "APP-GEN-" + appId, Date.valueOf(created), clientId, assetId,
+                    money(priceCents), money(advanceCents), money(financedCents),
+                    term, rate, Date.valueOf(start), status.name(), rejection
+            });
+
+            AnnuityCentsEngine.Rate r = rates.get(rate);
+            if (r == null) {
+                r = AnnuityCentsEngine.Rate.ofAnnualPercent(rate);
+                rates.put(rate, r);
+            }
+            AnnuityCentsEngine.Schedule s = AnnuityCentsEngine.schedule(financedCents, term, r);
+            if (storeSchedules) generated.add(new GeneratedSchedule(appId, start, s));
+
+            if (!contracted) continue;
+
+            long contractId = ids.contractBase + i;
+            contractRows.add(new Object[]{
+                    contractId, "CN-GEN-" + appId, Date.valueOf(start.minusDays(rnd.nextInt(5))), appId,
+                    money(financedCents), term, rate, Date.valueOf(start)
+            });
+            addPayments(rnd, contractId, start, today, s, paymentIds, paymentRows);
+        }
+
+        // 2) запись: заявки и договоры раньше графиков и платежей (внешние ключи)
+        batchInsert(INSERT_APPLICATION, appRows);
+        batchInsert(INSERT_CONTRACT, contractRows);
+        long scheduleCount = storeSchedules ? insertScheduleRows(generated) : 0;
+        batchInsert(INSERT_PAYMENT, paymentRows);
+
+        counters.contracts.addAndGet(contractRows.size());
+        counters.scheduleRows.addAndGet(scheduleCount);
+        counters.payments.addAndGet(paymentRows.size());
+    }
+
+    private long insertScheduleRows(List<GeneratedSchedule> generated) {
+        PooledSequence ids = new PooledSequence(jdbc, PaymentScheduleItem.ID_SEQUENCE, PaymentScheduleItem.ID_ALLOCATION);
+        List<Object[]> batch = new ArrayList<Object[]>(BATCH_SIZE);
+        long written = 0;
+
+        for (GeneratedSchedule g : generated) {
+            AnnuityCentsEngine.Schedule s = g.schedule;
+            for (int k = 0; k < s.n; k++) {
+                batch.add(new Object[]{
+                        ids.nextId(), g.applicationId, k + 1, Date.valueOf(g.start.plusMonths(k + 1)),
+                        money(s.total[k]), money(s.interest[k]), money(s.principal[k]), money(s.balanceAfter[k])
+                });
+                if (batch.size() == BATCH_SIZE) {
+                    jdbc.batchUpdate(INSERT_SCHEDULE_ROW, batch);
+                    written += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate(INSERT_SCHEDULE_ROW, batch);
+            written += batch.size();
+        }
+        return written;
+    }
+
+    /**
+     * Платежи по наступившим датам графика. Профили: 80% — платят в срок (±3 дня, полная сумма),
+     * 15% — с задержкой до 40 дней и частичными оплатами, 5% — перестают платить после нескольких взносов.
+     */
+    private void addPayments(Random rnd, long contractId, LocalDate start, LocalDate today,
+                             AnnuityCentsEngine.Schedule s, PooledSequence paymentIds, List<Object[]> rows) {
+        int profile = rnd.nextInt(100);
+        int stopAfter = profile >= 95 ? rnd.nextInt(Math.max(1, s.n / 2)) : s.n;
+
+        for (int k = 0; k < Math.min(s.n, stopAfter); k++) {
+            LocalDate due = start.plusMonths(k + 1);
+            LocalDate paid;
+            long amount = s.total[k];
+
+            if (profile < 80) {
+                paid = due.plusDays(rnd.nextInt(7) - 3);
+            } else {
+                paid = due.plusDays(rnd.nextInt(41));
+                if (rnd.nextInt(100) < 30) amount = amount * (70 + rnd.nextInt(30)) / 100;
+            }
+            if (paid.isAfter(today)) break;
+
+            rows.add(new Object[]{
+                    paymentIds.nextId(), contractId, Date.valueOf(paid), money(amount),
+                    amount < s.total[k] ? "Частичное погашение" : "Оплата по графику"
+            });
+        }
+    }
+
+    // ---------- helpers ----------
+
+    /** Ставка: базовая по сроку + разброс, шаг 0.25, в пределах 6..35% */
+    private static BigDecimal rate(Random rnd, int term) {
+        double base = 11 + term / 12.0;
+        double v = Math.min(35, Math.max(6, base + 2.5 * rnd.nextGaussian()));
+        return BigDecimal.valueOf(Math.round(v * 4), 0).divide(BigDecimal.valueOf(4)).setScale(2);
+    }
+
+    private static int weighted(Random rnd, int[] values, int[] weights) {
+        int total = 0;
+        for (int w : weights) total += w;
+        int x = rnd.nextInt(total);
+        for (int i = 0; i < values.length; i++) {
+            x -= weights[i];
+            if (x < 0) return values[i];
+        }
+        return values[values.length - 1];
+    }
+
+    private Random chunkRandom(int stream, int from) {
+        return new Random(seed * 1000003L + stream * 7919L + from);
+    }
+
+    private void batchInsert(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbc.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE)));
+        }
+    }
+
+    private long nextId(String table) {
+        Long max = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        return (max == null ? 0 : max) + 1;
+    }
+
+    /** id вставлены явно — передвинуть identity-счётчик за максимальный */
+    private void restartIdentity(String table) {
+        jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + nextId(table));
+    }
+
+    private static void await(List<Future<?>> futures) {
+        try {
+            for (Future<?> f : futures) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Data generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Data generation failed", e.getCause());
+        }
+    }
+
+    private static BigDecimal money(long cents) {
+        return AnnuityCentsEngine.fromCents(cents);
+    }
+}
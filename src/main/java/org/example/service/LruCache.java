@@ -0,0 +1,103 @@
+package org.example.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Простой ограниченный LRU-кэш (LinkedHashMap в access-order) со счётчиками
+ * попаданий/промахов/вытеснений. Все операции синхронизированы.
+ */
+public class LruCache<K, V> {
+
+    private final int maxSize;
+    private final LinkedHashMap<K, V> map;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LruCache(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be > 0");
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        V v = map.get(key);
+        if (v == null) misses++;
+        else hits++;
+        return v;
+    }
+
+    /** Значение без учёта в статистике и без изменения порядка */
+    public synchronized V peek(K key) {
+        return map.get(key);
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, value);
+    }
+
+    public synchronized V putIfAbsent(K key, V value) {
+        V cur = map.get(key);
+        if (cur != null) return cur;
+        map.put(key, value);
+        return null;
+    }
+
+    public synchronized V remove(K key) {
+        return map.remove(key);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() { return map.size(); }
+    public int getMaxSize() { return maxSize; }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+
+    /** Снимок счётчиков — для мониторинга/отладки */
+    public synchronized Stats stats() {
+        return new Stats(map.size(), maxSize, hits, misses, evictions);
+    }
+
+    public static final class Stats {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        Stats(int size, int maxSize, long hits, long misses, long evictions) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int getSize() { return size; }
+        public int getMaxSize() { return maxSize; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.service;
+
+import org.example.domain.ActualPayment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Импорт фактических платежей из банковской выписки (CSV, разделитель ';'):
+ * contractNumber;paymentDate;amount[;comment]
+ *
+ * Файл читается построчно порциями по BATCH_SIZE: номера договоров порции
+ * разрешаются одним запросом, принятые строки пишутся JDBC-батчем. По каждой строке
+ * в отчёт уходит "принята/отклонена" — память не зависит от размера файла.
+ */
+@Service
+public class PaymentImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentImportService.class);
+
+    static final int BATCH_SIZE = 1000;
+    static final int COMMENT_MAX = 200;
+
+    // разделитель тысяч в сумме — пробел, в т.ч. неразрывный (Excel)
+    private static final Pattern THOUSANDS_SEPARATOR = Pattern.compile("[ \\u00A0\\u202F]");
+
+    private static final DateTimeFormatter RU_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private static final String INSERT_PAYMENT =
+            "INSERT INTO actual_payment (id, contract_id, payment_date, amount, comment) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher events;
+    private final DashboardRollupService rollups;
+
+    public PaymentImportService(JdbcTemplate jdbc,
+                                NamedParameterJdbcTemplate namedJdbc,
+                                TransactionTemplate tx,
+                                ApplicationEventPublisher events,
+                                DashboardRollupService rollups) {
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        this.tx = tx;
+        this.events = events;
+        this.rollups = rollups;
+    }
+
+    /** Куда писать результат по строкам файла */
+    public interface ReportWriter {
+        void line(long lineNo, boolean accepted, String message) throws IOException;
+        void flush() throws IOException;
+    }
+
+    public static class Summary {
+        private long accepted;
+        private long rejected;
+
+        public long getAccepted() { return accepted; }
+        public long getRejected() { return rejected; }
+    }
+
+    public Summary importCsv(Reader source, ReportWriter report) throws IOException {
+        BufferedReader in = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        Summary summary = new Summary();
+        List<Row> batch = new ArrayList<Row>(BATCH_SIZE);
+
+        String line;
+        long lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            if (lineNo == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') line = line.substring(1); // BOM
+            if (line.trim().isEmpty() || line.startsWith("#")) continue;
+            if (lineNo == 1 && line.toLowerCase().startsWith("contractnumber")) continue; // заголовок
+
+            batch.add(parse(lineNo, line));
+            if (batch.size() == BATCH_SIZE) {
+                processBatch(batch, summary, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) processBatch(batch, summary, report);
+
+        log.info("payments import: {} accepted, {} rejected", summary.accepted, summary.rejected);
+        return summary;
+    }
+
+    // ---------- helpers ----------
+
+    private static class Row {
+        final long lineNo;
+        String error;
+        String contractNumber;
+        LocalDate date;
+        BigDecimal amount;
+        String comment;
+        Long contractId;
+
+        Row(long lineNo) {
+            this.lineNo = lineNo;
+        }
+    }
+
+    private Row parse(long lineNo, String line) {
+        Row r = new Row(lineNo);
+        String[] f = line.split(";", -1);
+        if (f.length < 3) {
+            r.error = "expected contractNumber;paymentDate;amount[;comment]";
+            return r;
+        }
+
+        r.contractNumber = f[0].trim();
+        if (r.contractNumber.isEmpty()) {
+            r.error = "contract number is empty";
+            return r;
+        }
+
+        try {
+            String d = f[1].trim();
+            r.date = d.indexOf('.') > 0 ? LocalDate.parse(d, RU_DATE) : LocalDate.parse(d);
+        } catch (DateTimeParseException e) {
+            r.error = "bad payment date: " + f[1].trim();
+            return r;
+        }
+
+        try {
+            r.amount = new BigDecimal(THOUSANDS_SEPARATOR.matcher(f[2].trim()).replaceAll("").replace(',', '.'));
+        } catch (NumberFormatException e) {
+            r.error = "bad amount: " + f[2].trim();
+            return r;
+        }
+        if (r.amount.compareTo(BigDecimal.ZERO) <= 0) {
+            r.error = "amount must be > 0";
+            return r;
+        }
+        // 12.500 — это 12.50; отклоняются только ненулевые цифры после копеек
+        BigDecimal stripped = r.amount.stripTrailingZeros();
+        if (stripped.scale() > 2) {
+            r.error = "amount has more than 2 decimal places";
+            return r;
+        }
+        r.amount = stripped.setScale(2);
+
+        if (f.length > 3) {
+            String c = f[3].trim();
+            r.comment = c.length() > COMMENT_MAX ? c.substring(0, COMMENT_MAX) : c;
+        }
+        return r;
+    }
+
+    private void processBatch(List<Row> batch, Summary summary, ReportWriter report) throws IOException {
+        resolveContracts(batch);
+
+        final List<Object[]> args = new ArrayList<Object[]>(batch.size());
+        PooledSequence ids = new PooledSequence(jdbc, ActualPayment.ID_SEQUENCE, ActualPayment.ID_ALLOCATION);
+        for (Row r : batch) {
+            if (r.error != null) continue;
+            if (r.contractId == null) {
+                r.error = "contract not found: " + r.contractNumber;
+                continue;
+            }
+            args.add(new Object[]{ids.nextId(), r.contractId, Date.valueOf(r.date), r.amount, r.comment});
+        }
+
+        if (!args.isEmpty()) {
+            // вставка и события — одна запись для свёрток дашборда
+            rollups.write(() -> {
+                tx.executeWithoutResult(status -> jdbc.batchUpdate(INSERT_PAYMENT, args));
+                for (Row r : batch) {
+                    if (r.error == null) events.publishEvent(new PaymentRecordedEvent(r.contractId, r.date, r.amount));
+                }
+                return null;
+            });
+        }
+
+        for (Row r : batch) {
+            if (r.error == null) {
+                summary.accepted++;
+                report.line(r.lineNo, true, "");
+            } else {
+                summary.rejected++;
+                report.line(r.lineNo, false, r.error);
+            }
+        }
+        report.flush();
+    }
+
+    /** Номера договоров порции -> id, одним запросом */
+    private void resolveContracts(List<Row> batch) {
+        Set<String> numbers = new LinkedHashSet<String>();
+        for (Row r : batch) {
+            if (r.error == null) numbers.add(r.contractNumber);
+        }
+        if (numbers.isEmpty()) return;
+
+        final Map<String, Long> ids = new HashMap<String, Long>();
+        namedJdbc.query("SELECT id, contract_number FROM lease_contract WHERE contract_number IN (:numbers)",
+                new MapSqlParameterSource("numbers", numbers),
+                rs -> {
+                    ids.put(rs.getString(2), rs.getLong(1));
+                });
+
+        for (Row r : batch) {
+            if (r.error == null) r.contractId = ids.get(r.contractNumber);
+        }
+    }
+}
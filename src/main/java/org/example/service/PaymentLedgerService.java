@@ -0,0 +1,160 @@
+package org.example.service;
+
+import org.example.domain.ActualPayment;
+import org.example.repo.ActualPaymentRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Журнал фактических платежей по договору: даты по возрастанию + нарастающие итоги (в копейках).
+ *
+ * Журнал договора загружается одним запросом при первом обращении и дальше
+ * дополняется по {@link PaymentRecordedEvent} — "оплачено к дате" это бинарный поиск,
+ * без повторного чтения и суммирования платежей.
+ */
+@Service
+public class PaymentLedgerService {
+
+    static final int MAX_CONTRACTS = 10000;
+
+    private final ActualPaymentRepository factRepo;
+    private final LruCache<Long, Ledger> ledgers = new LruCache<Long, Ledger>(MAX_CONTRACTS);
+
+    // растёт при каждой записи; загрузка, начатая до записи, в кэш не кладётся
+    private final AtomicLong writes = new AtomicLong();
+
+    public PaymentLedgerService(ActualPaymentRepository factRepo) {
+        this.factRepo = factRepo;
+    }
+
+    /** Сколько фактически оплачено по договору к дате (включительно) */
+    public BigDecimal paidUpTo(Long contractId, LocalDate date) {
+        return AnnuityCentsEngine.fromCents(ledger(contractId).paidUpTo(date));
+    }
+
+    /** Учесть сохранённый платёж (вызывать после save) */
+    public void recordPayment(Long contractId, LocalDate date, BigDecimal amount) {
+        if (contractId == null || date == null || amount == null) return;
+
+        synchronized (ledgers) {
+            writes.incrementAndGet();
+            Ledger cur = ledgers.peek(contractId);
+            if (cur != null) {
+                ledgers.put(contractId, cur.with(date.toEpochDay(), cents(amount)));
+            }
+        }
+    }
+
+    @EventListener
+    public void onPaymentRecorded(PaymentRecordedEvent e) {
+        recordPayment(e.getContractId(), e.getPaymentDate(), e.getAmount());
+    }
+
+    @EventListener
+    public void onDataSeeded(DataSeededEvent e) {
+        evictAll();
+    }
+
+    public void evict(Long contractId) {
+        synchronized (ledgers) {
+            writes.incrementAndGet();
+            ledgers.remove(contractId);
+        }
+    }
+
+    public void evictAll() {
+        synchronized (ledgers) {
+            writes.incrementAndGet();
+            ledgers.clear();
+        }
+    }
+
+    Ledger ledger(Long contractId) {
+        Ledger l = ledgers.get(contractId);
+        if (l != null) return l;
+
+        long version = writes.get();
+        l = Ledger.of(factRepo.findByContractIdOrderByPaymentDateAsc(contractId));
+
+        synchronized (ledgers) {
+            if (version == writes.get()) {
+                Ledger cur = ledgers.putIfAbsent(contractId, l);
+                if (cur != null) return cur;
+            }
+        }
+        return l;
+    }
+
+    private static long cents(BigDecimal v) {
+        return v.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /** Неизменяемый снимок: days[i] — дата (epochDay), cum[i] — оплачено по эту строку включительно */
+    static final class Ledger {
+        final long[] days;
+        final long[] cum;
+
+        private Ledger(long[] days, long[] cum) {
+            this.days = days;
+            this.cum = cum;
+        }
+
+        static Ledger of(List<ActualPayment> sortedByDate) {
+            long[] days = new long[sortedByDate.size()];
+            long[] cum = new long[sortedByDate.size()];
+            int n = 0;
+            long sum = 0;
+            for (ActualPayment p : sortedByDate) {
+                if (p.getPaymentDate() == null || p.getAmount() == null) continue;
+                sum += cents(p.getAmount());
+                days[n] = p.getPaymentDate().toEpochDay();
+                cum[n] = sum;
+                n++;
+            }
+            return new Ledger(Arrays.copyOf(days, n), Arrays.copyOf(cum, n));
+        }
+
+        long paidUpTo(LocalDate date) {
+            int idx = upperBound(date.toEpochDay());
+            return idx == 0 ? 0L : cum[idx - 1];
+        }
+
+        /** Копия с ещё одним платежом (платёж может быть задним числом) */
+        Ledger with(long day, long amount) {
+            int n = days.length;
+            int pos = upperBound(day);
+
+            long[] d = new long[n + 1];
+            long[] c = new long[n + 1];
+            System.arraycopy(days, 0, d, 0, pos);
+            System.arraycopy(cum, 0, c, 0, pos);
+
+            d[pos] = day;
+            c[pos] = (pos == 0 ? 0L : cum[pos - 1]) + amount;
+
+            for (int i = pos; i < n; i++) {
+                d[i + 1] = days[i];
+                c[i + 1] = cum[i] + amount;
+            }
+            return new Ledger(d, c);
+        }
+
+        /** Число строк с датой <= day */
+        private int upperBound(long day) {
+            int lo = 0, hi = days.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (days[mid] <= day) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** Фактический платёж сохранён (публикуется после сохранения) */
+public class PaymentRecordedEvent {
+
+    private final Long contractId;
+    private final LocalDate paymentDate;
+    private final BigDecimal amount;
+
+    public PaymentRecordedEvent(Long contractId, LocalDate paymentDate, BigDecimal amount) {
+        this.contractId = contractId;
+        this.paymentDate = paymentDate;
+        this.amount = amount;
+    }
+
+    public Long getContractId() { return contractId; }
+    public LocalDate getPaymentDate() { return paymentDate; }
+    public BigDecimal getAmount() { return amount; }
+}
@@ -1,32 +1,99 @@
 package org.example.service;
 
-import org.example.domain.ActualPayment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.example.domain.LeaseApplication;
 import org.example.domain.PaymentScheduleItem;
-import org.example.repo.ActualPaymentRepository;
-import org.example.repo.PaymentScheduleItemRepository;
+import org.example.repo.LeaseApplicationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Service
 public class PaymentsAnalyticsService {
 
-    private final PaymentScheduleItemRepository planRepo;
-    private final ActualPaymentRepository factRepo;
+    private final LeaseApplicationRepository appRepo;
+    private final ScheduleProvider schedules;
+    private final PaymentLedgerService ledger;
 
-    public PaymentsAnalyticsService(PaymentScheduleItemRepository planRepo,
-                                    ActualPaymentRepository factRepo) {
-        this.planRepo = planRepo;
-        this.factRepo = factRepo;
+    // leasing.analytics по методам
+    private final Timer plannedTimer;
+    private final Timer paidTimer;
+    private final Timer overdueTimer;
+
+    /** Без метрик (бенчмарки, ручное создание) */
+    public PaymentsAnalyticsService(LeaseApplicationRepository appRepo,
+                                    ScheduleProvider schedules,
+                                    PaymentLedgerService ledger) {
+        this(appRepo, schedules, ledger, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public PaymentsAnalyticsService(LeaseApplicationRepository appRepo,
+                                    ScheduleProvider schedules,
+                                    PaymentLedgerService ledger,
+                                    MeterRegistry meters) {
+        this.appRepo = appRepo;
+        this.schedules = schedules;
+        this.ledger = ledger;
+        this.plannedTimer = timer(meters, "plannedPaidUpTo", "params");
+        this.paidTimer = timer(meters, "actuallyPaidUpTo", "ledger");
+        this.overdueTimer = timer(meters, "overdueInstallmentsCount", "schedule");
     }
 
-    /** Сколько по плану должно быть оплачено к дате */
-    public BigDecimal plannedPaidUpTo(Long applicationId, LocalDate date) {
-        List<PaymentScheduleItem> plan =
-                planRepo.findByApplicationIdOrderByPaymentNoAsc(applicationId);
+    private static Timer timer(MeterRegistry meters, String method, String source) {
+        return Timer.builder("leasing.analytics")
+                .tag("method", method)
+                .tag("source", source)
+                .register(meters);
+    }
 
+    /** Сколько по плану должно быть оплачено к дате: заявка читается по id, дальше — как по параметрам */
+    public BigDecimal plannedPaidUpTo(final Long applicationId, final LocalDate date) {
+        return plannedTimer.record(() -> plannedFromParams(application(applicationId), date));
+    }
+
+    /**
+     * Сколько по плану должно быть оплачено к дате — по параметрам заявки, без чтения графика:
+     * число наступивших платежей * аннуитетный платёж, последний платёж — с учётом "хвоста".
+     * Сохранённые строки читаются только если график правили вручную.
+     */
+    public BigDecimal plannedPaidUpTo(final LeaseApplication app, final LocalDate date) {
+        return plannedTimer.record(() -> plannedFromParams(app, date));
+    }
+
+    private BigDecimal plannedFromParams(LeaseApplication app, LocalDate date) {
+        int n = app.getTermMonths() == null ? 0 : app.getTermMonths();
+        Long principal = AnnuityCentsEngine.toCentsExact(app.getFinancedAmount());
+
+        if (app.isScheduleManual() || app.getStartDate() == null || n <= 0
+                || principal == null || principal <= 0) {
+            return plannedFromSchedule(schedules.scheduleFor(app), date);
+        }
+
+        int due = installmentsDue(app.getStartDate(), n, date);
+        if (due == 0) return BigDecimal.ZERO;
+
+        AnnuityCentsEngine.Rate rate = AnnuityCentsEngine.Rate.ofAnnualPercent(app.getAnnualRatePercent());
+        try {
+            long payment = rate.paymentCents(principal, n);
+            long sum = due < n
+                    ? Math.multiplyExact(due, payment)
+                    : Math.addExact(Math.multiplyExact(n - 1, payment),
+                            AnnuityCentsEngine.lastPaymentCents(principal, n, rate, payment));
+            return AnnuityCentsEngine.fromCents(sum);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            // вне диапазона копеечного расчёта — по графику, как его покажет ScheduleProvider
+            return plannedFromSchedule(schedules.scheduleFor(app), date);
+        }
+    }
+
+    private BigDecimal plannedFromSchedule(List<PaymentScheduleItem> plan, LocalDate date) {
         BigDecimal sum = BigDecimal.ZERO;
         for (PaymentScheduleItem p : plan) {
             if (p.getDueDate() != null && !p.getDueDate().isAfter(date)) {
@@ -36,26 +103,30 @@ public class PaymentsAnalyticsService {
         return sum;
     }
 
-    /** Сколько фактически оплачено к дате */
-    public BigDecimal actuallyPaidUpTo(Long contractId, LocalDate date) {
-        List<ActualPayment> facts =
-                factRepo.findByContractIdAndPaymentDateLessThanEqualOrderByPaymentDateAsc(
-                        contractId, date
-                );
+    /** Сколько платежей графика (dueDate = start + i мес., i = 1..n) наступило к дате */
+    static int installmentsDue(LocalDate start, int n, LocalDate date) {
+        long k = ChronoUnit.MONTHS.between(start, date);
+        if (k < 0) k = 0;
+        if (k > n) k = n;
+        while (k < n && !start.plusMonths(k + 1).isAfter(date)) k++;
+        while (k > 0 && start.plusMonths(k).isAfter(date)) k--;
+        return (int) k;
+    }
 
-        BigDecimal sum = BigDecimal.ZERO;
-        for (ActualPayment f : facts) {
-            sum = sum.add(nvl(f.getAmount()));
-        }
-        return sum;
+    /** Сколько фактически оплачено к дате */
+    public BigDecimal actuallyPaidUpTo(final Long contractId, final LocalDate date) {
+        return paidTimer.record(() -> ledger.paidUpTo(contractId, date));
     }
 
     /** Количество просроченных платежей */
-    public int overdueInstallmentsCount(Long applicationId, Long contractId, LocalDate date) {
-        List<PaymentScheduleItem> plan =
-                planRepo.findByApplicationIdOrderByPaymentNoAsc(applicationId);
+    public int overdueInstallmentsCount(final Long applicationId, final Long contractId, final LocalDate date) {
+        return overdueTimer.record(() -> countOverdue(applicationId, contractId, date));
+    }
 
-        BigDecimal paid = actuallyPaidUpTo(contractId, date);
+    private int countOverdue(Long applicationId, Long contractId, LocalDate date) {
+        List<PaymentScheduleItem> plan = schedules.scheduleFor(application(applicationId));
+
+        BigDecimal paid = ledger.paidUpTo(contractId, date);
         BigDecimal cumulative = BigDecimal.ZERO;
         int overdueCount = 0;
 
@@ -70,6 +141,10 @@ public class PaymentsAnalyticsService {
         return overdueCount;
     }
 
+    private LeaseApplication application(Long applicationId) {
+        return appRepo.findById(applicationId).orElseThrow(IllegalArgumentException::new);
+    }
+
     private BigDecimal nvl(BigDecimal v) {
         return v == null ? BigDecimal.ZERO : v;
     }
@@ -0,0 +1,262 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Consumer;
+
+/**
+ * Просрочка по всему портфелю за один проход.
+ *
+ * Два курсора, оба упорядочены по договору: наступившие строки графиков
+ * (договор, дата платежа) и оплаты к дате по договорам. Курсоры сливаются
+ * (merge-join) без загрузки сущностей — 2 запроса на весь портфель вместо 2 на договор.
+ * В derived-режиме (см. {@link ScheduleProvider}) план считается из параметров заявок.
+ */
+@Service
+public class PortfolioArrearsService {
+
+    static final int FETCH_SIZE = 5000;
+
+    private static final String PLAN_SQL =
+            "SELECT c.id, s.due_date, s.payment_total " +
+            "FROM lease_contract c JOIN payment_schedule_item s ON s.application_id = c.application_id " +
+            "WHERE s.due_date <= ? " +
+            "ORDER BY c.id, s.due_date, s.payment_no";
+
+    // по договору нужен только итог оплат к дате — агрегируем в БД
+    private static final String PAID_SQL =
+            "SELECT contract_id, SUM(amount) FROM actual_payment " +
+            "WHERE payment_date <= ? AND contract_id IS NOT NULL " +
+            "GROUP BY contract_id ORDER BY contract_id";
+
+    // derived-режим: параметры графика по договорам и строки только ручных графиков
+    private static final String CONTRACTS_SQL =
+            "SELECT c.id, a.financed_amount, a.term_months, a.annual_rate_percent, a.start_date, " +
+            "COALESCE(a.schedule_manual, FALSE) " +
+            "FROM lease_contract c JOIN lease_application a ON a.id = c.application_id " +
+            "ORDER BY c.id";
+
+    private static final String MANUAL_PLAN_SQL =
+            "SELECT c.id, s.due_date, s.payment_total " +
+            "FROM lease_contract c JOIN lease_application a ON a.id = c.application_id " +
+            "JOIN payment_schedule_item s ON s.application_id = a.id " +
+            "WHERE a.schedule_manual = TRUE AND s.due_date <= ? " +
+            "ORDER BY c.id, s.due_date, s.payment_no";
+
+    private final JdbcTemplate jdbc;
+    private final ScheduleProvider schedules;
+
+    public PortfolioArrearsService(JdbcTemplate jdbc, ScheduleProvider schedules) {
+        this.jdbc = jdbc;
+        this.schedules = schedules;
+    }
+
+    /** Результат по одному договору */
+    public static class ContractArrears {
+        private final long contractId;
+        private final int overdueCount;
+        private final BigDecimal arrears;
+        private final int daysPastDue;
+
+        ContractArrears(long contractId, int overdueCount, long arrearsCents, int daysPastDue) {
+            this.contractId = contractId;
+            this.overdueCount = overdueCount;
+            this.arrears = AnnuityCentsEngine.fromCents(arrearsCents);
+            this.daysPastDue = daysPastDue;
+        }
+
+        public long getContractId() { return contractId; }
+        public int getOverdueCount() { return overdueCount; }
+        public BigDecimal getArrears() { return arrears; }
+        public int getDaysPastDue() { return daysPastDue; }
+    }
+
+    /**
+     * Проходит все договоры с наступившими платежами и отдаёт результат по каждому в sink.
+     * Возвращает число обработанных договоров.
+     */
+    public long scan(LocalDate date, Consumer<ContractArrears> sink) {
+        if (schedules.isDerivedMode()) {
+            return jdbc.execute((ConnectionCallback<Long>) con -> scanDerived(con, date, sink));
+        }
+        return jdbc.execute((ConnectionCallback<Long>) con -> scan(con, date, sink));
+    }
+
+    private long scan(Connection con, LocalDate date, Consumer<ContractArrears> sink) throws SQLException {
+        try (PreparedStatement planPs = prepare(con, PLAN_SQL, date);
+             PreparedStatement paidPs = prepare(con, PAID_SQL, date);
+             ResultSet plan = planPs.executeQuery();
+             ResultSet paid = paidPs.executeQuery()) {
+
+            PaidCursor paidCursor = new PaidCursor(paid);
+            long contracts = 0;
+            boolean hasPlan = plan.next();
+
+            while (hasPlan) {
+                long contractId = plan.getLong(1);
+                Accumulator acc = new Accumulator(paidCursor.paidCents(contractId));
+
+                while (hasPlan && plan.getLong(1) == contractId) {
+                    acc.add(plan.getObject(2, LocalDate.class), cents(plan.getBigDecimal(3)));
+                    hasPlan = plan.next();
+                }
+
+                sink.accept(acc.result(contractId, date));
+                contracts++;
+            }
+            return contracts;
+        }
+    }
+
+    /**
+     * derived-режим: по каждому договору — параметры заявки; наступившие платежи считаются
+     * по формуле (аннуитет + "хвост" последнего платежа), хранимые строки читаются
+     * только для вручную правленных графиков. Три курсора, все по возрастанию id договора.
+     */
+    private long scanDerived(Connection con, LocalDate date, Consumer<ContractArrears> sink) throws SQLException {
+        try (PreparedStatement contractPs = prepare(con, CONTRACTS_SQL, null);
+             PreparedStatement manualPs = prepare(con, MANUAL_PLAN_SQL, date);
+             PreparedStatement paidPs = prepare(con, PAID_SQL, date);
+             ResultSet contract = contractPs.executeQuery();
+             ResultSet manual = manualPs.executeQuery();
+             ResultSet paid = paidPs.executeQuery()) {
+
+            PaidCursor paidCursor = new PaidCursor(paid);
+            long contracts = 0;
+            boolean hasManual = manual.next();
+
+            while (contract.next()) {
+                long contractId = contract.getLong(1);
+                Accumulator acc;
+
+                if (contract.getBoolean(6)) {
+                    while (hasManual && manual.getLong(1) < contractId) {
+                        hasManual = manual.next();
+                    }
+                    acc = new Accumulator(paidCursor.paidCents(contractId));
+                    while (hasManual && manual.getLong(1) == contractId) {
+                        acc.add(manual.getObject(2, LocalDate.class), cents(manual.getBigDecimal(3)));
+                        hasManual = manual.next();
+                    }
+                } else {
+                    LeaseApplication app = new LeaseApplication();
+                    app.setFinancedAmount(contract.getBigDecimal(2));
+                    app.setTermMonths((Integer) contract.getObject(3));
+                    app.setAnnualRatePercent(contract.getBigDecimal(4));
+                    app.setStartDate(contract.getObject(5, LocalDate.class));
+
+                    acc = new Accumulator(paidCursor.paidCents(contractId));
+                    addDerived(app, date, acc);
+                }
+
+                if (acc.installments > 0) {
+                    sink.accept(acc.result(contractId, date));
+                    contracts++;
+                }
+            }
+            return contracts;
+        }
+    }
+
+    // наступившие платежи выведенного графика; некорректные параметры — графика нет
+    private void addDerived(LeaseApplication app, LocalDate date, Accumulator acc) {
+        int n = app.getTermMonths() == null ? 0 : app.getTermMonths();
+        Long principal = AnnuityCentsEngine.toCentsExact(app.getFinancedAmount());
+        LocalDate start = app.getStartDate() == null ? LocalDate.now() : app.getStartDate();
+
+        if (n <= 0 || app.getFinancedAmount() == null || app.getFinancedAmount().signum() <= 0) return;
+
+        if (principal == null) {
+            // больше двух знаков в сумме — через полный расчёт, как его покажет ScheduleProvider
+            for (PaymentScheduleItem row : schedules.build(app)) {
+                if (row.getDueDate().isAfter(date)) break;
+                acc.add(row.getDueDate(), cents(row.getPaymentTotal()));
+            }
+            return;
+        }
+
+        int due = PaymentsAnalyticsService.installmentsDue(start, n, date);
+        if (due == 0) return;
+
+        AnnuityCentsEngine.Rate rate = AnnuityCentsEngine.Rate.ofAnnualPercent(app.getAnnualRatePercent());
+        long payment;
+        try {
+            payment = rate.paymentCents(principal, n);
+        } catch (IllegalArgumentException e) {
+            return; // платёж вне диапазона копеечного расчёта
+        }
+        for (int i = 1; i <= due; i++) {
+            long total = i < n ? payment : AnnuityCentsEngine.lastPaymentCents(principal, n, rate, payment);
+            acc.add(start.plusMonths(i), total);
+        }
+    }
+
+    /** Итоги оплат по договорам (курсор PAID_SQL), запрашиваются по возрастанию id договора */
+    private static final class PaidCursor {
+        private final ResultSet rs;
+        private boolean has;
+
+        PaidCursor(ResultSet rs) throws SQLException {
+            this.rs = rs;
+            this.has = rs.next();
+        }
+
+        long paidCents(long contractId) throws SQLException {
+            while (has && rs.getLong(1) < contractId) {
+                has = rs.next();
+            }
+            return has && rs.getLong(1) == contractId ? cents(rs.getBigDecimal(2)) : 0L;
+        }
+    }
+
+    /** Нарастающий итог плана по одному договору против оплаченного к дате */
+    private static final class Accumulator {
+        private final long paidCents;
+        private long cumulative;
+        private int installments;
+        private int overdue;
+        private LocalDate firstUnpaid;
+
+        Accumulator(long paidCents) {
+            this.paidCents = paidCents;
+        }
+
+        void add(LocalDate dueDate, long totalCents) {
+            installments++;
+            cumulative += totalCents;
+            if (paidCents < cumulative) {
+                overdue++;
+                if (firstUnpaid == null) firstUnpaid = dueDate;
+            }
+        }
+
+        ContractArrears result(long contractId, LocalDate date) {
+            long arrears = Math.max(0L, cumulative - paidCents);
+            int dpd = firstUnpaid == null ? 0 : (int) ChronoUnit.DAYS.between(firstUnpaid, date);
+            return new ContractArrears(contractId, overdue, arrears, dpd);
+        }
+    }
+
+    private static PreparedStatement prepare(Connection con, String sql, LocalDate date) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(FETCH_SIZE);
+        if (date != null) ps.setObject(1, date);
+        return ps;
+    }
+
+    private static long cents(BigDecimal v) {
+        return v == null ? 0L : v.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,244 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Сетка котировок для менеджеров: платёж и переплата по одной заявке
+ * для всех сочетаний срок × ставка × аванс.
+ *
+ * Строки графика не строятся: платёж — одно умножение суммы на коэффициент аннуитета,
+ * последний платёж (хвост округлений) досчитывается в копейках сразу для всех авансов
+ * ({@link AnnuityCentsEngine#lastPaymentsCents}). Ставки и коэффициенты по срокам
+ * кэшируются между ячейками и запросами. Суммы совпадают с полным графиком до копейки.
+ */
+@Service
+public class QuoteGridService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteGridService.class);
+
+    static final int MAX_TERM = 600;
+    static final int MAX_CELLS = 50_000;
+
+    static final List<Integer> DEFAULT_TERMS = Collections.unmodifiableList(Arrays.asList(12, 24, 36, 48, 60, 72, 84));
+    static final List<BigDecimal> DEFAULT_ADVANCES = Collections.unmodifiableList(Arrays.asList(
+            BigDecimal.ZERO, new BigDecimal("10"), new BigDecimal("20"), new BigDecimal("30"), new BigDecimal("40")));
+
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    // ставка (без хвостовых нулей) -> Rate и коэффициенты по срокам
+    private final LruCache<BigDecimal, RateFactors> rates;
+
+    public QuoteGridService() {
+        this(256);
+    }
+
+    @Autowired
+    public QuoteGridService(@Value("${leasing.quote-grid.rate-cache-size:256}") int rateCacheSize) {
+        this.rates = new LruCache<BigDecimal, RateFactors>(rateCacheSize);
+    }
+
+    /** Ставка с коэффициентами аннуитета, досчитываемыми по мере надобности */
+    static final class RateFactors {
+        final AnnuityCentsEngine.Rate rate;
+        private final double[] factors = new double[MAX_TERM + 1]; // 0 — ещё не считали
+
+        RateFactors(BigDecimal annualPercent) {
+            this.rate = AnnuityCentsEngine.Rate.ofAnnualPercent(annualPercent);
+        }
+
+        synchronized double factor(int n) {
+            double f = factors[n];
+            if (f == 0) {
+                f = rate.annuityFactor(n);
+                factors[n] = f;
+            }
+            return f;
+        }
+    }
+
+    /** Результат: суммы в копейках, индексы [аванс][ставка][срок] */
+    public static class Grid {
+        private final BigDecimal assetPrice;
+        private final List<Integer> terms;
+        private final List<BigDecimal> rates;
+        private final List<BigDecimal> advancePercents;
+        private final long[] advanceCents;
+        private final long[] financedCents;
+        private final long[][][] paymentCents;
+        private final long[][][] lastPaymentCents;
+        private final long[][][] interestCents;
+        private long millis;
+
+        Grid(BigDecimal assetPrice, List<Integer> terms, List<BigDecimal> rates, List<BigDecimal> advancePercents) {
+            this.assetPrice = assetPrice;
+            this.terms = terms;
+            this.rates = rates;
+            this.advancePercents = advancePercents;
+            int a = advancePercents.size();
+            this.advanceCents = new long[a];
+            this.financedCents = new long[a];
+            this.paymentCents = new long[a][rates.size()][terms.size()];
+            this.lastPaymentCents = new long[a][rates.size()][terms.size()];
+            this.interestCents = new long[a][rates.size()][terms.size()];
+        }
+
+        public BigDecimal getAssetPrice() { return assetPrice; }
+        public List<Integer> getTerms() { return terms; }
+        public List<BigDecimal> getRates() { return rates; }
+        public List<BigDecimal> getAdvancePercents() { return advancePercents; }
+        public int getCells() { return advancePercents.size() * rates.size() * terms.size(); }
+        public long getMillis() { return millis; }
+
+        public List<BigDecimal> getAdvances() { return money(advanceCents); }
+        public List<BigDecimal> getFinanced() { return money(financedCents); }
+
+        /** Ежемесячный платёж; null — аванс покрывает всю стоимость */
+        public List<List<List<BigDecimal>>> getMonthlyPayment() { return money(paymentCents); }
+        /** Последний платёж (с хвостом округлений) */
+        public List<List<List<BigDecimal>>> getLastPayment() { return money(lastPaymentCents); }
+        /** Переплата: сумма платежей минус сумма финансирования */
+        public List<List<List<BigDecimal>>> getTotalInterest() { return money(interestCents); }
+
+        public long paymentCents(int advance, int rate, int term) { return paymentCents[advance][rate][term]; }
+        public long lastPaymentCents(int advance, int rate, int term) { return lastPaymentCents[advance][rate][term]; }
+        public long interestCents(int advance, int rate, int term) { return interestCents[advance][rate][term]; }
+
+        private List<BigDecimal> money(long[] cents) {
+            List<BigDecimal> res = new ArrayList<BigDecimal>(cents.length);
+            for (long c : cents) res.add(AnnuityCentsEngine.fromCents(c));
+            return res;
+        }
+
+        private List<List<List<BigDecimal>>> money(long[][][] cents) {
+            List<List<List<BigDecimal>>> res = new ArrayList<List<List<BigDecimal>>>(cents.length);
+            for (int a = 0; a < cents.length; a++) {
+                boolean empty = financedCents[a] <= 0;
+                List<List<BigDecimal>> byRate = new ArrayList<List<BigDecimal>>(cents[a].length);
+                for (long[] byTerm : cents[a]) {
+                    List<BigDecimal> row = new ArrayList<BigDecimal>(byTerm.length);
+                    for (long c : byTerm) row.add(empty ? null : AnnuityCentsEngine.fromCents(c));
+                    byRate.add(row);
+                }
+                res.add(byRate);
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Сетка по заявке. Пустые списки заменяются значениями по умолчанию:
+     * сроки 12..84 с шагом 12, ставка заявки, аванс 0..40% с шагом 10.
+     */
+    public Grid quote(LeaseApplication app, List<Integer> terms, List<BigDecimal> ratePercents, List<BigDecimal> advancePercents) {
+        long t0 = System.nanoTime();
+
+        BigDecimal price = assetPrice(app);
+        List<Integer> ts = terms == null || terms.isEmpty() ? DEFAULT_TERMS : terms;
+        List<BigDecimal> rs = ratePercents == null || ratePercents.isEmpty()
+                ? Collections.singletonList(app.getAnnualRatePercent() == null ? BigDecimal.ZERO : app.getAnnualRatePercent())
+                : ratePercents;
+        List<BigDecimal> as = advancePercents == null || advancePercents.isEmpty() ? DEFAULT_ADVANCES : advancePercents;
+        validate(ts, rs, as);
+
+        Grid grid = new Grid(price, ts, rs, as);
+        long priceCents = AnnuityCentsEngine.toCents(price);
+
+        // суммы финансирования по авансам; ячейки с нулевой суммой не считаются
+        int m = 0;
+        int[] index = new int[as.size()];
+        for (int a = 0; a < as.size(); a++) {
+            long advance = AnnuityCentsEngine.toCents(price.multiply(as.get(a)).divide(HUNDRED, 2, RoundingMode.HALF_UP));
+            grid.advanceCents[a] = advance;
+            grid.financedCents[a] = priceCents - advance;
+            if (grid.financedCents[a] > 0) index[m++] = a;
+        }
+        long[] principal = new long[m];
+        for (int j = 0; j < m; j++) principal[j] = grid.financedCents[index[j]];
+
+        long[] payment = new long[m];
+        long[] last = new long[m];
+        for (int r = 0; r < rs.size(); r++) {
+            RateFactors rf = factorsFor(rs.get(r));
+            for (int t = 0; t < ts.size(); t++) {
+                int n = ts.get(t);
+                double factor = rf.factor(n);
+                for (int j = 0; j < m; j++) {
+                    payment[j] = rf.rate.paymentCents(principal[j], n, factor);
+                }
+                AnnuityCentsEngine.lastPaymentsCents(principal, payment, n, rf.rate, last);
+                for (int j = 0; j < m; j++) {
+                    int a = index[j];
+                    grid.paymentCents[a][r][t] = payment[j];
+                    grid.lastPaymentCents[a][r][t] = last[j];
+                    // n <= MAX_TERM, платёж <= AnnuityCentsEngine.MAX_CENTS: 600 * MAX_CENTS помещается в long
+                    grid.interestCents[a][r][t] = payment[j] * (n - 1) + last[j] - principal[j];
+                }
+            }
+        }
+
+        grid.millis = (System.nanoTime() - t0) / 1_000_000;
+        log.debug("quote grid: application {}, {} cells in {} ms", app.getId(), grid.getCells(), grid.millis);
+        return grid;
+    }
+
+    public LruCache.Stats getRateCacheStats() {
+        return rates.stats();
+    }
+
+    private RateFactors factorsFor(BigDecimal annualPercent) {
+        BigDecimal key = annualPercent.stripTrailingZeros();
+        RateFactors rf = rates.get(key);
+        if (rf == null) {
+            RateFactors created = new RateFactors(key);
+            rf = rates.putIfAbsent(key, created);
+            if (rf == null) rf = created;
+        }
+        return rf;
+    }
+
+    private static BigDecimal assetPrice(LeaseApplication app) {
+        BigDecimal price = app.getAssetPrice();
+        if (price == null && app.getFinancedAmount() != null) {
+            price = app.getFinancedAmount().add(app.getAdvanceAmount() == null ? BigDecimal.ZERO : app.getAdvanceAmount());
+        }
+        if (price == null || price.signum() <= 0) {
+            throw new IllegalArgumentException("assetPrice must be > 0");
+        }
+        if (AnnuityCentsEngine.toCentsExact(price) == null) {
+            throw new IllegalArgumentException("assetPrice must have at most 2 decimal places and fit AnnuityCentsEngine.MAX_CENTS");
+        }
+        return price;
+    }
+
+    private static void validate(List<Integer> terms, List<BigDecimal> rates, List<BigDecimal> advances) {
+        for (Integer n : terms) {
+            if (n == null || n <= 0 || n > MAX_TERM) {
+                throw new IllegalArgumentException("term must be in 1.." + MAX_TERM + ": " + n);
+            }
+        }
+        for (BigDecimal r : rates) {
+            if (r == null || r.signum() < 0) throw new IllegalArgumentException("rate must be >= 0: " + r);
+        }
+        for (BigDecimal a : advances) {
+            if (a == null || a.signum() < 0 || a.compareTo(HUNDRED) > 0) {
+                throw new IllegalArgumentException("advance percent must be in 0..100: " + a);
+            }
+        }
+        long cells = (long) terms.size() * rates.size() * advances.size();
+        if (cells > MAX_CELLS) {
+            throw new IllegalArgumentException("quote grid too large: " + cells + " cells (max " + MAX_CELLS + ")");
+        }
+    }
+}
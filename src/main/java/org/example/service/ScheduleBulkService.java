@@ -0,0 +1,382 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.example.repo.LeaseApplicationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Массовая пересборка графиков (переоценка портфеля, миграции).
+ *
+ * Заявки обрабатываются порциями по CHUNK_SIZE: порция читается одним запросом,
+ * графики считаются параллельно на своём ForkJoinPool, строки пишутся
+ * JDBC-батчами в одной транзакции на порцию. В памяти одновременно только одна порция.
+ *
+ * В derived-режиме ({@link ScheduleProvider}) строки не пишутся: у заявок без ручной правки
+ * хранимый график удаляется (он выводится из параметров). Ручные графики не трогаются в обоих режимах.
+ *
+ * Одновременно идёт не больше одного прохода: {@link #startRebuild} запускает его в фоне
+ * и сразу возвращает {@link Run}, прогресс которого можно опрашивать; второй запуск,
+ * пока первый не закончился, — IllegalStateException.
+ */
+@Service
+public class ScheduleBulkService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduleBulkService.class);
+
+    static final int CHUNK_SIZE = 500;
+    static final int BATCH_SIZE = 1000;
+    private static final int MAX_FAILED_IDS = 100;
+
+    private static final String INSERT_ROW =
+            "INSERT INTO payment_schedule_item " +
+            "(id, application_id, payment_no, due_date, payment_total, payment_interest, payment_principal, balance_after) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final LeaseApplicationRepository appRepo;
+    private final LeasingCalculationService calcService;
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate tx;
+    private final ScheduleProvider schedules;
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    // фоновые запуски; поток один — проход тоже один
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "schedule-rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // текущий или последний запуск (для опроса с фронта)
+    private final AtomicReference<Run> lastRun = new AtomicReference<Run>();
+    private final AtomicLong runSeq = new AtomicLong();
+
+    public ScheduleBulkService(LeaseApplicationRepository appRepo,
+                               LeasingCalculationService calcService,
+                               JdbcTemplate jdbc,
+                               NamedParameterJdbcTemplate namedJdbc,
+                               TransactionTemplate tx,
+                               ScheduleProvider schedules) {
+        this.appRepo = appRepo;
+        this.calcService = calcService;
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        this.tx = tx;
+        this.schedules = schedules;
+    }
+
+    public interface ProgressListener {
+        void onProgress(int done, int total);
+    }
+
+    public static class Result {
+        private int applications;
+        private long rows;
+        private int skippedManual;
+        private int failed;
+        private final List<Long> failedIds = new ArrayList<Long>();
+        private long millis;
+
+        public int getApplications() { return applications; }
+        public long getRows() { return rows; }
+        public int getSkippedManual() { return skippedManual; }
+        public int getFailed() { return failed; }
+        public List<Long> getFailedIds() { return failedIds; }
+        public long getMillis() { return millis; }
+    }
+
+    /** Один проход: прогресс, итог или ошибка */
+    public static class Run {
+        private final long id;
+        private final AtomicInteger done = new AtomicInteger();
+        private volatile int total;
+        private volatile boolean finished;
+        private volatile Result result;
+        private volatile String error;
+
+        Run(long id) {
+            this.id = id;
+        }
+
+        public long getId() { return id; }
+        public int getDone() { return done.get(); }
+        public int getTotal() { return total; }
+        public boolean isRunning() { return !finished; }
+        public Result getResult() { return result; }
+        public String getError() { return error; }
+    }
+
+    /** Текущий или последний завершённый проход; null — запусков не было */
+    public Run getLastRun() {
+        return lastRun.get();
+    }
+
+    /**
+     * Проход в фоне по списку id (null или пустой — все заявки); возвращается сразу.
+     * Если проход уже идёт — IllegalStateException.
+     */
+    public Run startRebuild(final List<Long> applicationIds) {
+        final Run run = begin();
+        runner.execute(() -> {
+            try {
+                List<Long> ids = applicationIds == null || applicationIds.isEmpty() ? allIds() : applicationIds;
+                execute(run, ids, null);
+            } catch (RuntimeException e) {
+                run.error = e.toString();
+                log.error("schedule bulk rebuild #{} failed", run.id, e);
+            } finally {
+                run.finished = true;
+            }
+        });
+        return run;
+    }
+
+    public Result rebuildAll(ProgressListener listener) {
+        return rebuildSchedules(allIds(), listener);
+    }
+
+    /** Проход в текущем потоке; если уже идёт фоновый — IllegalStateException */
+    public Result rebuildSchedules(List<Long> applicationIds, ProgressListener listener) {
+        Run run = begin();
+        try {
+            return execute(run, applicationIds, listener);
+        } catch (RuntimeException e) {
+            run.error = e.toString();
+            throw e;
+        } finally {
+            run.finished = true;
+        }
+    }
+
+    private Run begin() {
+        Run prev = lastRun.get();
+        Run run = new Run(runSeq.incrementAndGet());
+        if ((prev != null && !prev.finished) || !lastRun.compareAndSet(prev, run)) {
+            throw new IllegalStateException("Schedule bulk rebuild is already running");
+        }
+        return run;
+    }
+
+    private List<Long> allIds() {
+        return jdbc.queryForList("SELECT id FROM lease_application ORDER BY id", Long.class);
+    }
+
+    private Result execute(Run run, List<Long> applicationIds, ProgressListener listener) {
+        long t0 = System.currentTimeMillis();
+        int total = applicationIds.size();
+        run.total = total;
+
+        Result res = new Result();
+        AtomicLong rows = new AtomicLong();
+
+        for (int from = 0; from < total; from += CHUNK_SIZE) {
+            List<Long> chunk = applicationIds.subList(from, Math.min(total, from + CHUNK_SIZE));
+            List<LeaseApplication> apps = appRepo.findAllById(chunk);
+
+            if (schedules.isDerivedMode()) {
+                res.applications += dropDerived(apps);
+                int done = run.done.addAndGet(chunk.size());
+                if (listener != null) listener.onProgress(done, total);
+                continue;
+            }
+
+            // ручной график не пересчитывается — правки затёрлись бы расчётом
+            List<LeaseApplication> auto = new ArrayList<LeaseApplication>(apps.size());
+            for (LeaseApplication app : apps) {
+                if (app.isScheduleManual()) {
+                    res.skippedManual++;
+                } else {
+                    auto.add(app);
+                }
+            }
+
+            List<Computed> computed = compute(auto);
+
+            List<Long> okIds = new ArrayList<Long>(computed.size());
+            for (Computed c : computed) {
+                if (c.ok()) {
+                    okIds.add(c.applicationId);
+                } else {
+                    res.failed++;
+                    if (res.failedIds.size() < MAX_FAILED_IDS) res.failedIds.add(c.applicationId);
+                }
+            }
+
+            tx.executeWithoutResult(status -> {
+                if (!okIds.isEmpty()) {
+                    deleteRows(okIds);
+                }
+                rows.addAndGet(insertRows(computed));
+            });
+
+            res.applications += okIds.size();
+            int done = run.done.addAndGet(chunk.size());
+            if (listener != null) listener.onProgress(done, total);
+            log.debug("schedule bulk rebuild #{}: {}/{}", run.id, done, total);
+        }
+
+        res.rows = rows.get();
+        res.millis = System.currentTimeMillis() - t0;
+        run.result = res;
+        log.info("schedule bulk rebuild #{}: {} applications, {} rows, {} manual skipped, {} failed in {} ms",
+                run.id, res.applications, res.rows, res.skippedManual, res.failed, res.millis);
+        return res;
+    }
+
+    // ---------- helpers ----------
+
+    /** derived-режим: удалить хранимые строки у заявок без ручного графика */
+    private int dropDerived(List<LeaseApplication> apps) {
+        List<Long> ids = new ArrayList<Long>(apps.size());
+        for (LeaseApplication app : apps) {
+            if (!schedules.isStored(app)) ids.add(app.getId());
+        }
+        if (!ids.isEmpty()) {
+            tx.executeWithoutResult(status -> deleteRows(ids));
+        }
+        return ids.size();
+    }
+
+    private void deleteRows(List<Long> applicationIds) {
+        namedJdbc.update("DELETE FROM payment_schedule_item WHERE application_id IN (:ids)",
+                new MapSqlParameterSource("ids", applicationIds));
+    }
+
+    private static class Computed {
+        final Long applicationId;
+        final LocalDate start;
+        final AnnuityCentsEngine.Schedule schedule; // копеечный расчёт
+        final List<PaymentScheduleItem> rows;       // BigDecimal-расчёт, если копеечный неприменим
+
+        Computed(Long applicationId, LocalDate start, AnnuityCentsEngine.Schedule schedule, List<PaymentScheduleItem> rows) {
+            this.applicationId = applicationId;
+            this.start = start;
+            this.schedule = schedule;
+            this.rows = rows;
+        }
+
+        /** false — параметры заявки некорректны, график не посчитан */
+        boolean ok() {
+            return schedule != null || rows != null;
+        }
+    }
+
+    private List<Computed> compute(List<LeaseApplication> apps) {
+        try {
+            return pool.submit(() -> apps.parallelStream()
+                    .map(this::computeOne)
+                    .collect(Collectors.toList())
+            ).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Schedule bulk rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Schedule bulk rebuild failed", e.getCause());
+        }
+    }
+
+    private Computed computeOne(LeaseApplication app) {
+        LocalDate start = app.getStartDate() == null ? LocalDate.now() : app.getStartDate();
+        try {
+            // как ScheduleProvider.build: больше двух знаков или сумма сверх MAX_CENTS — BigDecimal-расчёт
+            if (AnnuityCentsEngine.toCentsExact(app.getFinancedAmount()) != null) {
+                return new Computed(app.getId(), start, calcService.buildAnnuityScheduleCents(app), null);
+            }
+            return new Computed(app.getId(), start, null, calcService.computeAnnuitySchedule(app));
+        } catch (IllegalArgumentException e) {
+            // некорректные параметры заявки — ожидаемо, считаем в failed
+            log.debug("schedule bulk rebuild: application {} skipped: {}", app.getId(), e.getMessage());
+            return new Computed(app.getId(), start, null, null);
+        } catch (RuntimeException e) {
+            log.warn("schedule bulk rebuild: application {} failed", app.getId(), e);
+            return new Computed(app.getId(), start, null, null);
+        }
+    }
+
+    private long insertRows(List<Computed> computed) {
+        List<Object[]> batch = new ArrayList<Object[]>(BATCH_SIZE);
+        PooledSequence ids = new PooledSequence(jdbc, PaymentScheduleItem.ID_SEQUENCE, PaymentScheduleItem.ID_ALLOCATION);
+        long written = 0;
+
+        for (Computed c : computed) {
+            if (c.rows != null) {
+                for (PaymentScheduleItem row : c.rows) {
+                    written += add(batch, new Object[]{
+                            ids.nextId(),
+                            c.applicationId,
+                            row.getPaymentNo(),
+                            Date.valueOf(row.getDueDate()),
+                            row.getPaymentTotal(),
+                            row.getPaymentInterest(),
+                            row.getPaymentPrincipal(),
+                            row.getBalanceAfter()
+                    });
+                }
+                continue;
+            }
+            AnnuityCentsEngine.Schedule s = c.schedule;
+            if (s == null) continue;
+
+            for (int i = 0; i < s.n; i++) {
+                written += add(batch, new Object[]{
+                        ids.nextId(),
+                        c.applicationId,
+                        i + 1,
+                        Date.valueOf(c.start.plusMonths(i + 1)),
+                        money(s.total[i]),
+                        money(s.interest[i]),
+                        money(s.principal[i]),
+                        money(s.balanceAfter[i])
+                });
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate(INSERT_ROW, batch);
+            written += batch.size();
+        }
+        return written;
+    }
+
+    // полный батч уходит в БД; возвращает число записанных строк
+    private int add(List<Object[]> batch, Object[] row) {
+        batch.add(row);
+        if (batch.size() < BATCH_SIZE) return 0;
+        jdbc.batchUpdate(INSERT_ROW, batch);
+        int n = batch.size();
+        batch.clear();
+        return n;
+    }
+
+    private static BigDecimal money(long cents) {
+        return AnnuityCentsEngine.fromCents(cents);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runner.shutdownNow();
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.example.repo.LeaseApplicationRepository;
+import org.example.repo.PaymentScheduleItemRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка всех графиков в CSV для BI: строки идут потоком из курсора (проекция, не сущности)
+ * прямо в writer, поэтому память не зависит от размера таблицы.
+ *
+ * В derived-режиме ({@link ScheduleProvider}) поток идёт по заявкам: график выводится из параметров,
+ * хранимые строки подмешиваются только для вручную правленных графиков. Порядок тот же — по заявке и номеру.
+ */
+@Service
+public class ScheduleExportService {
+
+    static final int FLUSH_EVERY = 5000;
+
+    static final String HEADER =
+            "application_id;application_number;contract_number;payment_no;due_date;" +
+            "payment_total;payment_interest;payment_principal;balance_after\n";
+
+    private final PaymentScheduleItemRepository scheduleRepo;
+    private final LeaseApplicationRepository appRepo;
+    private final ScheduleProvider schedules;
+
+    public ScheduleExportService(PaymentScheduleItemRepository scheduleRepo,
+                                 LeaseApplicationRepository appRepo,
+                                 ScheduleProvider schedules) {
+        this.scheduleRepo = scheduleRepo;
+        this.appRepo = appRepo;
+        this.schedules = schedules;
+    }
+
+    /** Пишет CSV в out, возвращает число строк графиков */
+    @Transactional(readOnly = true)
+    public long writeCsv(Writer out) throws IOException {
+        out.write(HEADER);
+
+        long rows = schedules.isDerivedMode() ? writeDerived(out) : writeStored(out);
+        out.flush();
+        return rows;
+    }
+
+    private long writeStored(Writer out) throws IOException {
+        long rows = 0;
+        try (Stream<PaymentScheduleItemRepository.ExportRow> stream = scheduleRepo.streamForExport()) {
+            Iterator<PaymentScheduleItemRepository.ExportRow> it = stream.iterator();
+            StringBuilder sb = new StringBuilder(160);
+            while (it.hasNext()) {
+                PaymentScheduleItemRepository.ExportRow r = it.next();
+                appendRow(sb, r.getApplicationId(), r.getApplicationNumber(), r.getContractNumber(),
+                        r.getPaymentNo(), r.getDueDate(), r.getPaymentTotal(), r.getPaymentInterest(),
+                        r.getPaymentPrincipal(), r.getBalanceAfter());
+                out.append(sb);
+
+                if (++rows % FLUSH_EVERY == 0) out.flush();
+            }
+        }
+        return rows;
+    }
+
+    private long writeDerived(Writer out) throws IOException {
+        long rows = 0;
+        try (Stream<LeaseApplicationRepository.ScheduleParams> params = appRepo.streamScheduleParams();
+             Stream<PaymentScheduleItemRepository.ExportRow> manual = scheduleRepo.streamManualForExport()) {
+
+            Iterator<LeaseApplicationRepository.ScheduleParams> apps = params.iterator();
+            Iterator<PaymentScheduleItemRepository.ExportRow> stored = manual.iterator();
+            PaymentScheduleItemRepository.ExportRow pending = stored.hasNext() ? stored.next() : null;
+            StringBuilder sb = new StringBuilder(160);
+
+            while (apps.hasNext()) {
+                LeaseApplicationRepository.ScheduleParams p = apps.next();
+
+                if (Boolean.TRUE.equals(p.getScheduleManual())) {
+                    while (pending != null && pending.getApplicationId() < p.getId()) {
+                        pending = stored.hasNext() ? stored.next() : null;
+                    }
+                    while (pending != null && pending.getApplicationId().equals(p.getId())) {
+                        appendRow(sb, pending.getApplicationId(), pending.getApplicationNumber(),
+                                pending.getContractNumber(), pending.getPaymentNo(), pending.getDueDate(),
+                                pending.getPaymentTotal(), pending.getPaymentInterest(),
+                                pending.getPaymentPrincipal(), pending.getBalanceAfter());
+                        out.append(sb);
+                        if (++rows % FLUSH_EVERY == 0) out.flush();
+                        pending = stored.hasNext() ? stored.next() : null;
+                    }
+                    continue;
+                }
+
+                LeaseApplication app = new LeaseApplication();
+                app.setFinancedAmount(p.getFinancedAmount());
+                app.setTermMonths(p.getTermMonths());
+                app.setAnnualRatePercent(p.getAnnualRatePercent());
+                app.setStartDate(p.getStartDate());
+
+                for (PaymentScheduleItem r : derive(app)) {
+                    appendRow(sb, p.getId(), p.getApplicationNumber(), p.getContractNumber(),
+                            r.getPaymentNo(), r.getDueDate(), r.getPaymentTotal(), r.getPaymentInterest(),
+                            r.getPaymentPrincipal(), r.getBalanceAfter());
+                    out.append(sb);
+                    if (++rows % FLUSH_EVERY == 0) out.flush();
+                }
+            }
+        }
+        return rows;
+    }
+
+    // без кэша провайдера: полный проход не должен вымывать его; некорректные параметры — строк нет
+    private Iterable<PaymentScheduleItem> derive(LeaseApplication app) {
+        try {
+            return schedules.build(app);
+        } catch (IllegalArgumentException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static void appendRow(StringBuilder sb, Long applicationId, String applicationNumber,
+                                  String contractNumber, Integer paymentNo, LocalDate dueDate,
+                                  BigDecimal total, BigDecimal interest, BigDecimal principal,
+                                  BigDecimal balanceAfter) {
+        sb.setLength(0);
+        sb.append(applicationId).append(';');
+        // номера — текст из БД: в кавычках, если в них есть ';', кавычка или перевод строки
+        Csv.appendField(sb, applicationNumber).append(';');
+        Csv.appendField(sb, contractNumber).append(';');
+        sb.append(paymentNo).append(';')
+                .append(dueDate == null ? "" : dueDate.toString()).append(';')
+                .append(money(total)).append(';')
+                .append(money(interest)).append(';')
+                .append(money(principal)).append(';')
+                .append(money(balanceAfter)).append('\n');
+    }
+
+    private static String money(BigDecimal v) {
+        return v == null ? "" : v.toPlainString();
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.example.repo.PaymentScheduleItemRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Откуда брать график заявки.
+ *
+ * leasing.schedule.storage=persisted (по умолчанию) — строки графика хранятся в payment_schedule_item.
+ * leasing.schedule.storage=derived — график однозначно выводится из (сумма, срок, ставка, дата начала)
+ * и собирается по запросу из кэша шаблонов {@link LeasingCalculationService}; в БД остаются строки
+ * только вручную правленных графиков (LeaseApplication.scheduleManual).
+ */
+@Service
+public class ScheduleProvider {
+
+    public enum Storage { PERSISTED, DERIVED }
+
+    private final PaymentScheduleItemRepository scheduleRepo;
+    private final LeasingCalculationService calcService;
+    private final Storage storage;
+
+    public ScheduleProvider(PaymentScheduleItemRepository scheduleRepo,
+                            LeasingCalculationService calcService,
+                            @Value("${leasing.schedule.storage:persisted}") String storage) {
+        this.scheduleRepo = scheduleRepo;
+        this.calcService = calcService;
+        this.storage = Storage.valueOf(storage.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public Storage getStorage() { return storage; }
+
+    public boolean isDerivedMode() { return storage == Storage.DERIVED; }
+
+    /** true — строки графика этой заявки лежат в БД */
+    public boolean isStored(LeaseApplication app) {
+        return storage == Storage.PERSISTED || app.isScheduleManual();
+    }
+
+    /** График для показа/печати/аналитики; некорректные параметры в derived-режиме — пустой график */
+    public List<PaymentScheduleItem> scheduleFor(LeaseApplication app) {
+        if (isStored(app)) {
+            return scheduleRepo.findByApplicationIdOrderByPaymentNoAsc(app.getId());
+        }
+        try {
+            return derive(app);
+        } catch (IllegalArgumentException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /** Выведенный из параметров график (копия шаблона из кэша). Некорректные параметры — IllegalArgumentException */
+    public List<PaymentScheduleItem> derive(LeaseApplication app) {
+        return calcService.buildAnnuitySchedule(app);
+    }
+
+    /** Расчёт без кэша (выгрузки и массовые проходы не должны вымывать кэш) */
+    public List<PaymentScheduleItem> build(LeaseApplication app) {
+        if (AnnuityCentsEngine.toCentsExact(app.getFinancedAmount()) != null) {
+            return calcService.toItems(calcService.buildAnnuityScheduleCents(app), app.getStartDate());
+        }
+        return calcService.computeAnnuitySchedule(app);
+    }
+}
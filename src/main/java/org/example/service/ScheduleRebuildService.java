@@ -0,0 +1,216 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.example.repo.LeaseApplicationRepository;
+import org.example.repo.PaymentScheduleItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Пересборка графика одной заявки после правки — через diff, а не delete-all + insert.
+ *
+ * Новый график сравнивается со старым построчно (по порядку payment_no): совпавшие строки
+ * не трогаются, изменённые обновляются на месте (dirty checking → батч UPDATE),
+ * строки добавляются/удаляются только на "хвосте", когда поменялся срок.
+ * Всё в одной транзакции.
+ *
+ * Если график заявки не хранится (см. {@link ScheduleProvider}), параметры только проверяются
+ * расчётом, а оставшиеся от прежнего режима строки удаляются.
+ *
+ * Ручная правка строки ({@link #editRow}) помечает график заявки как ручной (scheduleManual):
+ * с этого момента он хранится в БД в любом режиме. {@link #resetManual} снимает пометку
+ * и пересобирает график из параметров.
+ */
+@Service
+public class ScheduleRebuildService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduleRebuildService.class);
+
+    private final PaymentScheduleItemRepository scheduleRepo;
+    private final LeaseApplicationRepository appRepo;
+    private final LeasingCalculationService calcService;
+    private final ScheduleProvider schedules;
+
+    public ScheduleRebuildService(PaymentScheduleItemRepository scheduleRepo,
+                                  LeaseApplicationRepository appRepo,
+                                  LeasingCalculationService calcService,
+                                  ScheduleProvider schedules) {
+        this.scheduleRepo = scheduleRepo;
+        this.appRepo = appRepo;
+        this.calcService = calcService;
+        this.schedules = schedules;
+    }
+
+    public static class Result {
+        private int unchanged;
+        private int updated;
+        private int inserted;
+        private int deleted;
+
+        public int getUnchanged() { return unchanged; }
+        public int getUpdated() { return updated; }
+        public int getInserted() { return inserted; }
+        public int getDeleted() { return deleted; }
+    }
+
+    /** Ручной график не пересобирается (правки затёрлись бы расчётом) — сначала {@link #resetManual} */
+    @Transactional
+    public Result rebuild(LeaseApplication app) {
+        if (app.isScheduleManual()) {
+            log.debug("schedule rebuild app={}: manual schedule, skipped", app.getId());
+            return new Result();
+        }
+        if (!schedules.isStored(app)) {
+            schedules.derive(app);
+            Result res = new Result();
+            res.deleted = scheduleRepo.deleteAllByApplicationId(app.getId());
+            return res;
+        }
+
+        List<PaymentScheduleItem> fresh = calcService.buildAnnuitySchedule(app);
+        List<PaymentScheduleItem> stored = scheduleRepo.findByApplicationIdOrderByPaymentNoAsc(app.getId());
+
+        Result res = new Result();
+        int common = Math.min(fresh.size(), stored.size());
+
+        for (int i = 0; i < common; i++) {
+            if (copyIfChanged(fresh.get(i), stored.get(i))) {
+                res.updated++;
+            } else {
+                res.unchanged++;
+            }
+        }
+
+        if (fresh.size() > common) {
+            LeaseApplication ref = appRepo.getReferenceById(app.getId());
+            List<PaymentScheduleItem> tail = new ArrayList<PaymentScheduleItem>(fresh.subList(common, fresh.size()));
+            for (PaymentScheduleItem item : tail) {
+                item.setApplication(ref);
+            }
+            scheduleRepo.saveAll(tail);
+            res.inserted = tail.size();
+        }
+
+        if (stored.size() > common) {
+            List<PaymentScheduleItem> tail = stored.subList(common, stored.size());
+            res.deleted = tail.size();
+            scheduleRepo.deleteAllInBatch(new ArrayList<PaymentScheduleItem>(tail));
+        }
+
+        log.debug("schedule rebuild app={}: {} unchanged, {} updated, {} inserted, {} deleted",
+                app.getId(), res.unchanged, res.updated, res.inserted, res.deleted);
+        return res;
+    }
+
+    /**
+     * Ручная правка строки графика: дата, платёж и проценты; тело = платёж - проценты,
+     * остатки пересчитываются с этой строки до конца. Выведенный график сначала сохраняется в БД.
+     */
+    @Transactional
+    public void editRow(Long applicationId, int paymentNo, LocalDate dueDate,
+                        BigDecimal paymentTotal, BigDecimal paymentInterest) {
+        if (dueDate == null || paymentTotal == null || paymentInterest == null) {
+            throw new IllegalArgumentException("dueDate, paymentTotal and paymentInterest are required");
+        }
+        if (paymentTotal.signum() < 0 || paymentInterest.signum() < 0 || paymentInterest.compareTo(paymentTotal) > 0) {
+            throw new IllegalArgumentException("Must be 0 <= paymentInterest <= paymentTotal");
+        }
+
+        LeaseApplication app = appRepo.findById(applicationId).orElseThrow(IllegalArgumentException::new);
+        List<PaymentScheduleItem> rows = schedules.isStored(app)
+                ? scheduleRepo.findByApplicationIdOrderByPaymentNoAsc(applicationId)
+                : materialize(app);
+
+        int idx = -1;
+        for (int i = 0; i < rows.size(); i++) {
+            if (Integer.valueOf(paymentNo).equals(rows.get(i).getPaymentNo())) {
+                idx = i;
+                break;
+            }
+        }
+        if (idx < 0) throw new IllegalArgumentException("No schedule row " + paymentNo + " for application " + applicationId);
+
+        PaymentScheduleItem row = rows.get(idx);
+        row.setDueDate(dueDate);
+        row.setPaymentTotal(paymentTotal);
+        row.setPaymentInterest(paymentInterest);
+        row.setPaymentPrincipal(paymentTotal.subtract(paymentInterest));
+
+        BigDecimal balance = idx == 0 ? nvl(app.getFinancedAmount()) : nvl(rows.get(idx - 1).getBalanceAfter());
+        for (int i = idx; i < rows.size(); i++) {
+            balance = balance.subtract(nvl(rows.get(i).getPaymentPrincipal()));
+            if (balance.signum() < 0) balance = BigDecimal.ZERO;
+            rows.get(i).setBalanceAfter(balance);
+        }
+
+        app.setScheduleManual(true);
+        log.info("schedule of application {} edited by hand: row {}", applicationId, paymentNo);
+    }
+
+    /** Снять пометку ручного графика и пересобрать его из параметров заявки */
+    @Transactional
+    public Result resetManual(LeaseApplication app) {
+        // пометка снимается до rebuild — иначе он пропустит заявку
+        app.setScheduleManual(false);
+        appRepo.save(app);
+        return rebuild(app);
+    }
+
+    // выведенный график (derived-режим) становится хранимым
+    private List<PaymentScheduleItem> materialize(LeaseApplication app) {
+        List<PaymentScheduleItem> rows = schedules.derive(app);
+        for (PaymentScheduleItem item : rows) {
+            item.setApplication(app);
+        }
+        return scheduleRepo.saveAll(rows);
+    }
+
+    private static BigDecimal nvl(BigDecimal v) {
+        return v == null ? BigDecimal.ZERO : v;
+    }
+
+    // строка хранимого графика — управляемая сущность, UPDATE уйдёт только если что-то поменяли
+    private static boolean copyIfChanged(PaymentScheduleItem from, PaymentScheduleItem to) {
+        boolean changed = false;
+        if (!Objects.equals(from.getPaymentNo(), to.getPaymentNo())) {
+            to.setPaymentNo(from.getPaymentNo());
+            changed = true;
+        }
+        if (!Objects.equals(from.getDueDate(), to.getDueDate())) {
+            to.setDueDate(from.getDueDate());
+            changed = true;
+        }
+        if (!sameAmount(from.getPaymentTotal(), to.getPaymentTotal())) {
+            to.setPaymentTotal(from.getPaymentTotal());
+            changed = true;
+        }
+        if (!sameAmount(from.getPaymentInterest(), to.getPaymentInterest())) {
+            to.setPaymentInterest(from.getPaymentInterest());
+            changed = true;
+        }
+        if (!sameAmount(from.getPaymentPrincipal(), to.getPaymentPrincipal())) {
+            to.setPaymentPrincipal(from.getPaymentPrincipal());
+            changed = true;
+        }
+        if (!sameAmount(from.getBalanceAfter(), to.getBalanceAfter())) {
+            to.setBalanceAfter(from.getBalanceAfter());
+            changed = true;
+        }
+        return changed;
+    }
+
+    // 100.0 и 100.00 — одна сумма (scale из БД и из расчёта может отличаться)
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        if (a == null || b == null) return a == b;
+        return a.compareTo(b) == 0;
+    }
+}
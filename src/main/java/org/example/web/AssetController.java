@@ -4,12 +4,20 @@ import org.example.domain.InsuranceCompany;
 import org.example.domain.LeasedAsset;
 import org.example.domain.Supplier;
 import org.example.repo.InsuranceCompanyRepository;
+import org.example.repo.KeysetPage;
+import org.example.repo.KeysetPager;
 import org.example.repo.LeasedAssetRepository;
 import org.example.repo.SupplierRepository;
+import org.example.web.dto.ListPageForm;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+
 @Controller
 @RequestMapping("/assets")
 public class AssetController {
@@ -17,19 +25,40 @@ public class AssetController {
     private final LeasedAssetRepository assetRepo;
     private final SupplierRepository supplierRepo;
     private final InsuranceCompanyRepository insurerRepo;
+    private final KeysetPager pager;
 
     public AssetController(LeasedAssetRepository assetRepo,
                            SupplierRepository supplierRepo,
-                           InsuranceCompanyRepository insurerRepo) {
+                           InsuranceCompanyRepository insurerRepo,
+                           KeysetPager pager) {
         this.assetRepo = assetRepo;
         this.supplierRepo = supplierRepo;
         this.insurerRepo = insurerRepo;
+        this.pager = pager;
     }
 
     @GetMapping
-    public String list(Model model) {
+    public String list(@RequestParam(value = "assetType", required = false) String assetType,
+                       @RequestParam(value = "supplierId", required = false) Long supplierId,
+                       @ModelAttribute("pageForm") ListPageForm pageForm,
+                       Model model) {
+        String type = assetType == null || assetType.trim().isEmpty() ? null : assetType.trim();
+        Specification<LeasedAsset> filter = (root, q, cb) -> {
+            List<Predicate> p = new ArrayList<>();
+            if (type != null) p.add(cb.equal(root.get("assetType"), type));
+            if (supplierId != null) p.add(cb.equal(root.get("supplier").get("id"), supplierId));
+            return cb.and(p.toArray(new Predicate[0]));
+        };
+        KeysetPage<LeasedAsset> page =
+                pager.page(LeasedAsset.class, filter, pageForm.toRequest("id", "name", "price"),
+                        LeasedAsset.GRAPH_PARTIES);
+
         model.addAttribute("active", "assets");
-        model.addAttribute("assets", assetRepo.findAll());
+        model.addAttribute("assets", page.getItems());
+        model.addAttribute("suppliers", supplierRepo.findAll());
+        model.addAttribute("assetType", type);
+        model.addAttribute("supplierId", supplierId);
+        ListPages.addPager(model, page);
         return "assets/list";
     }
 
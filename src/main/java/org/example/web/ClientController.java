@@ -2,26 +2,57 @@ package org.example.web;
 
 import org.example.domain.Client;
 import org.example.repo.ClientRepository;
+import org.example.repo.KeysetPage;
+import org.example.repo.KeysetPager;
+import org.example.web.dto.ListPageForm;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+
 @Controller
 @RequestMapping("/clients")
 public class ClientController {
 
     private final ClientRepository repo;
+    private final KeysetPager pager;
 
-    public ClientController(ClientRepository repo) {
+    public ClientController(ClientRepository repo, KeysetPager pager) {
         this.repo = repo;
+        this.pager = pager;
     }
 
     @GetMapping
-    public String list(Model model) {
-        model.addAttribute("clients", repo.findAll());
+    public String list(@RequestParam(value = "clientType", required = false) String clientType,
+                       @RequestParam(value = "q", required = false) String q,
+                       @ModelAttribute("pageForm") ListPageForm pageForm,
+                       Model model) {
+        String type = clientType == null || clientType.trim().isEmpty() ? null : clientType.trim();
+        String prefix = q == null || q.trim().isEmpty() ? null : q.trim();
+        // префикс имени — LIKE 'q%' идёт по индексу (name, id)
+        Specification<Client> filter = (root, query, cb) -> {
+            List<Predicate> p = new ArrayList<>();
+            if (type != null) p.add(cb.equal(root.get("clientType"), type));
+            if (prefix != null) p.add(cb.like(root.<String>get("name"), escapeLike(prefix) + "%", '\\'));
+            return cb.and(p.toArray(new Predicate[0]));
+        };
+        KeysetPage<Client> page = pager.page(Client.class, filter, pageForm.toRequest("id", "name"));
+
+        model.addAttribute("clients", page.getItems());
+        model.addAttribute("clientType", type);
+        model.addAttribute("q", prefix);
+        ListPages.addPager(model, page);
         return "clients/list";
     }
 
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     @GetMapping("/new")
     public String createForm(Model model) {
         model.addAttribute("client", new Client());
@@ -0,0 +1,89 @@
+package org.example.web;
+
+import org.example.service.DataSeededEvent;
+import org.example.service.LeaseApplicationEvent;
+import org.example.service.PaymentRecordedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответа /reports/dashboard-data по периоду (не больше одной записи на Period).
+ *
+ * Сбрасывается по событиям заявок и платежей и при смене дня. Одновременные запросы
+ * одного периода ждут одно вычисление (single-flight), а не запускают каждый своё.
+ */
+@Component
+public class DashboardDataCache {
+
+    private static class Entry {
+        final LocalDate day;
+        final CompletableFuture<Map<String, Object>> future = new CompletableFuture<Map<String, Object>>();
+
+        Entry(LocalDate day) {
+            this.day = day;
+        }
+    }
+
+    private final Map<ReportController.Period, Entry> entries =
+            new EnumMap<ReportController.Period, Entry>(ReportController.Period.class);
+
+    public Map<String, Object> get(ReportController.Period period, Supplier<Map<String, Object>> compute) {
+        LocalDate today = LocalDate.now();
+        Entry entry;
+        boolean owner = false;
+
+        synchronized (entries) {
+            entry = entries.get(period);
+            if (entry == null || !entry.day.equals(today) || entry.future.isCompletedExceptionally()) {
+                entry = new Entry(today);
+                entries.put(period, entry);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            try {
+                entry.future.complete(compute.get());
+            } catch (RuntimeException | Error e) {
+                // и при Error (OOM, StackOverflow): иначе ждущие этого периода висели бы вечно
+                entry.future.completeExceptionally(e);
+                remove(period, entry);
+                throw e;
+            }
+        }
+        return entry.future.join();
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @EventListener
+    public void onApplication(LeaseApplicationEvent e) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onPaymentRecorded(PaymentRecordedEvent e) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onDataSeeded(DataSeededEvent e) {
+        invalidateAll();
+    }
+
+    private void remove(ReportController.Period period, Entry entry) {
+        synchronized (entries) {
+            if (entries.get(period) == entry) entries.remove(period);
+        }
+    }
+}
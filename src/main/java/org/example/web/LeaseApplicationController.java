@@ -2,49 +2,103 @@ package org.example.web;
 
 import org.example.domain.LeaseApplication;
 import org.example.domain.LeasedAsset;
-import org.example.domain.PaymentScheduleItem;
 import org.example.repo.ClientRepository;
+import org.example.repo.KeysetPage;
+import org.example.repo.KeysetPager;
 import org.example.repo.LeaseApplicationRepository;
 import org.example.repo.LeasedAssetRepository;
-import org.example.repo.PaymentScheduleItemRepository;
-import org.example.service.LeasingCalculationService;
+import org.example.service.DashboardRollupService;
+import org.example.service.LeaseApplicationEvent;
+import org.example.service.QuoteGridService;
+import org.example.service.ScheduleBulkService;
+import org.example.service.ScheduleProvider;
+import org.example.service.ScheduleRebuildService;
 import org.example.web.dto.LeaseApplicationForm;
+import org.example.web.dto.ListPageForm;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import javax.persistence.criteria.Predicate;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Controller
 @RequestMapping("/applications")
 public class LeaseApplicationController {
 
     private final LeaseApplicationRepository appRepo;
-    private final PaymentScheduleItemRepository scheduleRepo;
     private final ClientRepository clientRepo;
     private final LeasedAssetRepository assetRepo;
-    private final LeasingCalculationService calcService;
+    private final ScheduleBulkService bulkService;
+    private final ScheduleRebuildService rebuildService;
+    private final ScheduleProvider schedules;
+    private final ApplicationEventPublisher events;
+    private final KeysetPager pager;
+    private final QuoteGridService quoteGrid;
+    private final DashboardRollupService rollups;
 
     public LeaseApplicationController(
             LeaseApplicationRepository appRepo,
-            PaymentScheduleItemRepository scheduleRepo,
             ClientRepository clientRepo,
             LeasedAssetRepository assetRepo,
-            LeasingCalculationService calcService
+            ScheduleBulkService bulkService,
+            ScheduleRebuildService rebuildService,
+            ScheduleProvider schedules,
+            ApplicationEventPublisher events,
+            KeysetPager pager,
+            QuoteGridService quoteGrid,
+            DashboardRollupService rollups
     ) {
         this.appRepo = appRepo;
-        this.scheduleRepo = scheduleRepo;
         this.clientRepo = clientRepo;
         this.assetRepo = assetRepo;
-        this.calcService = calcService;
+        this.bulkService = bulkService;
+        this.rebuildService = rebuildService;
+        this.schedules = schedules;
+        this.events = events;
+        this.pager = pager;
+        this.quoteGrid = quoteGrid;
+        this.rollups = rollups;
     }
 
     @GetMapping
-    public String list(Model model) {
+    public String list(@RequestParam(value = "status", required = false) LeaseApplication.Status status,
+                       @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                       @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                       @RequestParam(value = "clientId", required = false) Long clientId,
+                       @ModelAttribute("pageForm") ListPageForm pageForm,
+                       Model model) {
+        Specification<LeaseApplication> filter = (root, q, cb) -> {
+            List<Predicate> p = new ArrayList<>();
+            if (status != null) p.add(cb.equal(root.get("status"), status));
+            if (from != null) p.add(cb.greaterThanOrEqualTo(root.<LocalDate>get("createdDate"), from));
+            if (to != null) p.add(cb.lessThanOrEqualTo(root.<LocalDate>get("createdDate"), to));
+            if (clientId != null) p.add(cb.equal(root.get("client").get("id"), clientId));
+            return cb.and(p.toArray(new Predicate[0]));
+        };
+        KeysetPage<LeaseApplication> page =
+                pager.page(LeaseApplication.class, filter, pageForm.toRequest("id", "createdDate"),
+                        LeaseApplication.GRAPH_PARTIES);
+
         model.addAttribute("active", "applications");
-        model.addAttribute("apps", appRepo.findAll());
+        model.addAttribute("apps", page.getItems());
+        model.addAttribute("statuses", LeaseApplication.Status.values());
+        model.addAttribute("status", status);
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("clientId", clientId);
+        ListPages.addPager(model, page);
         return "applications/list";
     }
     @GetMapping("/new")
@@ -75,19 +129,22 @@ public class LeaseApplicationController {
 
         applyFormToApp(app, form);
 
-        app = appRepo.save(app);
-
-        rebuildSchedule(app);
+        LeaseApplication saved = rollups.write(() -> {
+            LeaseApplication a = appRepo.save(app);
+            rebuildSchedule(a);
+            publish(LeaseApplicationEvent.Type.CREATED, a);
+            return a;
+        });
 
-        return "redirect:/applications/" + app.getId();
+        return "redirect:/applications/" + saved.getId();
     }
 
     @GetMapping("/{id}")
     public String view(@PathVariable Long id, Model model) {
-        LeaseApplication app = appRepo.findById(id).orElseThrow(IllegalArgumentException::new);
+        LeaseApplication app = appRepo.findWithPartiesById(id).orElseThrow(IllegalArgumentException::new);
         model.addAttribute("active", "applications");
         model.addAttribute("app", app);
-        model.addAttribute("schedule", scheduleRepo.findByApplicationIdOrderByPaymentNoAsc(id));
+        model.addAttribute("schedule", schedules.scheduleFor(app));
         return "applications/view";
     }
 
@@ -109,10 +166,19 @@ public class LeaseApplicationController {
         form.setAnnualRatePercent(app.getAnnualRatePercent());
         form.setStartDate(app.getStartDate() != null ? app.getStartDate().toString() : LocalDate.now().toString());
 
+        return editView(app, form, false, model);
+    }
+
+    private String editView(LeaseApplication app, LeaseApplicationForm form, boolean rejected, Model model) {
         model.addAttribute("active", "applications");
         model.addAttribute("mode", "edit");
-        model.addAttribute("appId", id);
-        model.addAttribute("actionUrl", "/applications/" + id);
+        model.addAttribute("appId", app.getId());
+        model.addAttribute("actionUrl", "/applications/" + app.getId());
+        if (app.isScheduleManual()) {
+            model.addAttribute("scheduleWarning", (rejected ? "Изменения не сохранены. " : "")
+                    + "График правлен вручную: сумма, срок, ставка и дата начала не меняются, "
+                    + "пока не вернёте расчётный график на странице заявки.");
+        }
 
         model.addAttribute("form", form);
         model.addAttribute("clients", clientRepo.findAll());
@@ -122,18 +188,24 @@ public class LeaseApplicationController {
 
 
     @PostMapping("/{id}")
-    public String update(@PathVariable Long id, @ModelAttribute("form") LeaseApplicationForm form) {
+    public String update(@PathVariable Long id, @ModelAttribute("form") LeaseApplicationForm form, Model model) {
         LeaseApplication app = appRepo.findById(id).orElseThrow(IllegalArgumentException::new);
 
         if (app.getStatus() != LeaseApplication.Status.NEW) {
             return "redirect:/applications/" + id;
         }
 
+        // ручной график не пересобирается — расчётные параметры разошлись бы с ним
+        if (app.isScheduleManual() && changesSchedule(app, form)) {
+            return editView(app, form, true, model);
+        }
+
         applyFormToApp(app, form);
 
         appRepo.save(app);
 
         rebuildSchedule(app);
+        publish(LeaseApplicationEvent.Type.UPDATED, app);
 
         return "redirect:/applications/" + id;
     }
@@ -146,6 +218,7 @@ public class LeaseApplicationController {
         if (app.getStatus() == LeaseApplication.Status.NEW) {
             app.setStatus(LeaseApplication.Status.APPROVED);
             appRepo.save(app);
+            publish(LeaseApplicationEvent.Type.APPROVED, app);
         }
         return "redirect:/applications/" + id;
     }
@@ -158,6 +231,7 @@ public class LeaseApplicationController {
             app.setStatus(LeaseApplication.Status.REJECTED);
             app.setRejectionReason(reason);
             appRepo.save(app);
+            publish(LeaseApplicationEvent.Type.REJECTED, app);
         }
 
         return "redirect:/applications/" + id;
@@ -165,23 +239,115 @@ public class LeaseApplicationController {
 
     @GetMapping("/{id}/print")
     public String print(@PathVariable Long id, Model model) {
-        LeaseApplication app = appRepo.findById(id).orElseThrow(IllegalArgumentException::new);
+        LeaseApplication app = appRepo.findWithPartiesById(id).orElseThrow(IllegalArgumentException::new);
         model.addAttribute("app", app);
-        model.addAttribute("schedule", scheduleRepo.findByApplicationIdOrderByPaymentNoAsc(id));
+        model.addAttribute("schedule", schedules.scheduleFor(app));
         return "applications/print";
     }
 
+    // ---------- MANUAL SCHEDULE ----------
+
+    /** Ручная правка строки графика — график заявки становится ручным (scheduleManual) */
+    @PostMapping("/{id}/schedule/{paymentNo}")
+    public String editScheduleRow(@PathVariable Long id,
+                                  @PathVariable int paymentNo,
+                                  @RequestParam("dueDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDate,
+                                  @RequestParam("paymentTotal") BigDecimal paymentTotal,
+                                  @RequestParam("paymentInterest") BigDecimal paymentInterest) {
+        rebuildService.editRow(id, paymentNo, dueDate, paymentTotal, paymentInterest);
+        return "redirect:/applications/" + id;
+    }
+
+    /** Вернуть расчётный график вместо ручного */
+    @PostMapping("/{id}/schedule/reset")
+    public String resetSchedule(@PathVariable Long id) {
+        LeaseApplication app = appRepo.findById(id).orElseThrow(IllegalArgumentException::new);
+        if (app.isScheduleManual()) {
+            rebuildService.resetManual(app);
+        }
+        return "redirect:/applications/" + id;
+    }
+
+    // ---------- QUOTE GRID ----------
+
+    /** Платёж и переплата по срокам × ставкам × авансам (% от стоимости), без построения графиков */
+    @GetMapping("/{id}/quote-grid")
+    @ResponseBody
+    public QuoteGridService.Grid quoteGrid(@PathVariable Long id,
+                                           @RequestParam(value = "terms", required = false) List<Integer> terms,
+                                           @RequestParam(value = "rates", required = false) List<BigDecimal> rates,
+                                           @RequestParam(value = "advances", required = false) List<BigDecimal> advances) {
+        LeaseApplication app = appRepo.findById(id).orElseThrow(IllegalArgumentException::new);
+        return quoteGrid.quote(app, terms, rates, advances);
+    }
+
+    // ---------- BULK SCHEDULES ----------
+
+    /**
+     * Пересборка графиков по списку id (пустой список — все заявки) — в фоне, ответ сразу (202).
+     * Прогресс — /applications/schedules/rebuild/progress; пока идёт проход, второй запуск — 409.
+     */
+    @PostMapping("/schedules/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSchedules(@RequestBody(required = false) List<Long> ids) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(progress(bulkService.startRebuild(ids)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(progress(bulkService.getLastRun()));
+        }
+    }
+
+    @GetMapping("/schedules/rebuild/progress")
+    @ResponseBody
+    public Map<String, Object> rebuildProgress() {
+        return progress(bulkService.getLastRun());
+    }
+
+    private static Map<String, Object> progress(ScheduleBulkService.Run run) {
+        Map<String, Object> res = new HashMap<String, Object>();
+        res.put("runId", run == null ? null : run.getId());
+        res.put("running", run != null && run.isRunning());
+        res.put("done", run == null ? 0 : run.getDone());
+        res.put("total", run == null ? 0 : run.getTotal());
+        res.put("result", run == null ? null : run.getResult());
+        res.put("error", run == null ? null : run.getError());
+        return res;
+    }
+
     // ---------- HELPERS ----------
 
+    // меняет ли форма параметры графика: сумму финансирования, срок, ставку или дату начала
+    private boolean changesSchedule(LeaseApplication app, LeaseApplicationForm form) {
+        LeasedAsset asset = assetRepo.findById(form.getAssetId()).orElseThrow(IllegalArgumentException::new);
+        BigDecimal financed = price(asset).subtract(advance(form));
+        String start = form.getStartDate() == null ? "" : form.getStartDate().trim();
+
+        return !sameAmount(app.getFinancedAmount(), financed)
+                || !Objects.equals(app.getTermMonths(), form.getTermMonths())
+                || !sameAmount(app.getAnnualRatePercent(), form.getAnnualRatePercent())
+                || app.getStartDate() == null || !app.getStartDate().toString().equals(start);
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private static BigDecimal price(LeasedAsset asset) {
+        return asset.getPrice() == null ? BigDecimal.ZERO : asset.getPrice();
+    }
+
+    private static BigDecimal advance(LeaseApplicationForm form) {
+        BigDecimal advance = form.getAdvanceAmount() == null ? BigDecimal.ZERO : form.getAdvanceAmount();
+        return advance.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : advance;
+    }
+
     private void applyFormToApp(LeaseApplication app, LeaseApplicationForm form) {
         app.setClient(clientRepo.findById(form.getClientId()).orElseThrow(IllegalArgumentException::new));
 
         LeasedAsset asset = assetRepo.findById(form.getAssetId()).orElseThrow(IllegalArgumentException::new);
         app.setAsset(asset);
 
-        BigDecimal price = asset.getPrice() == null ? BigDecimal.ZERO : asset.getPrice();
-        BigDecimal advance = form.getAdvanceAmount() == null ? BigDecimal.ZERO : form.getAdvanceAmount();
-        if (advance.compareTo(BigDecimal.ZERO) < 0) advance = BigDecimal.ZERO;
+        BigDecimal price = price(asset);
+        BigDecimal advance = advance(form);
 
         BigDecimal financed = price.subtract(advance);
         if (financed.compareTo(BigDecimal.ZERO) <= 0) {
@@ -201,15 +367,12 @@ public class LeaseApplicationController {
         app.setStartDate(LocalDate.parse(form.getStartDate())); // yyyy-MM-dd
     }
 
-    private void rebuildSchedule(LeaseApplication app) {
-        // удаляем старый график
-        // если у репозитория нет такого метода — см. пункт 2 ниже
-        scheduleRepo.deleteByApplicationId(app.getId());
+    private void publish(LeaseApplicationEvent.Type type, LeaseApplication app) {
+        events.publishEvent(new LeaseApplicationEvent(type, app.getId(), app.getCreatedDate()));
+    }
 
-        List<PaymentScheduleItem> schedule = calcService.buildAnnuitySchedule(app);
-        for (PaymentScheduleItem item : schedule) {
-            item.setApplication(app);
-        }
-        scheduleRepo.saveAll(schedule);
+    private void rebuildSchedule(LeaseApplication app) {
+        // обновляются только изменившиеся строки графика
+        rebuildService.rebuild(app);
     }
 }
@@ -6,17 +6,37 @@ import org.example.domain.LeaseContract;
 import org.example.domain.LeasedAsset;
 import org.example.domain.PaymentScheduleItem;
 import org.example.repo.ActualPaymentRepository;
+import org.example.repo.KeysetPage;
+import org.example.repo.KeysetPager;
 import org.example.repo.LeaseApplicationRepository;
 import org.example.repo.LeaseContractRepository;
-import org.example.repo.PaymentScheduleItemRepository;
-import org.example.service.PaymentsAnalyticsService;
+import org.example.service.ContractViewService;
+import org.example.service.Csv;
+import org.example.service.DashboardRollupService;
+import org.example.service.LeaseApplicationEvent;
+import org.example.service.PaymentImportService;
+import org.example.service.PaymentRecordedEvent;
+import org.example.service.ScheduleProvider;
 import org.example.web.dto.ActualPaymentForm;
+import org.example.web.dto.ListPageForm;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import javax.persistence.criteria.Predicate;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -26,20 +46,32 @@ public class LeaseContractController {
 
     private final LeaseContractRepository contractRepo;
     private final LeaseApplicationRepository appRepo;
-    private final PaymentScheduleItemRepository scheduleRepo;
+    private final ScheduleProvider schedules;
     private final ActualPaymentRepository paymentRepo;
-    private final PaymentsAnalyticsService analytics;
+    private final ContractViewService contractViews;
+    private final ApplicationEventPublisher events;
+    private final PaymentImportService importService;
+    private final KeysetPager pager;
+    private final DashboardRollupService rollups;
 
     public LeaseContractController(LeaseContractRepository contractRepo,
                                    LeaseApplicationRepository appRepo,
-                                   PaymentScheduleItemRepository scheduleRepo,
+                                   ScheduleProvider schedules,
                                    ActualPaymentRepository paymentRepo,
-                                   PaymentsAnalyticsService analytics) {
+                                   ContractViewService contractViews,
+                                   ApplicationEventPublisher events,
+                                   PaymentImportService importService,
+                                   KeysetPager pager,
+                                   DashboardRollupService rollups) {
         this.contractRepo = contractRepo;
         this.appRepo = appRepo;
-        this.scheduleRepo = scheduleRepo;
+        this.schedules = schedules;
         this.paymentRepo = paymentRepo;
-        this.analytics = analytics;
+        this.contractViews = contractViews;
+        this.events = events;
+        this.importService = importService;
+        this.pager = pager;
+        this.rollups = rollups;
     }
 
     // ----------------- helpers -----------------
@@ -61,10 +93,6 @@ public class LeaseContractController {
         return x.toPlainString().replace('.', ',');
     }
 
-    private BigDecimal nvl(BigDecimal v) {
-        return v == null ? BigDecimal.ZERO : v;
-    }
-
     private String fmtRate(BigDecimal v) {
         if (v == null) return "__";
         return v.stripTrailingZeros().toPlainString().replace('.', ',');
@@ -85,7 +113,8 @@ public class LeaseContractController {
                 .map(c -> "redirect:/contracts/" + c.getId())
                 .orElseGet(() -> {
                     LeaseContract c = new LeaseContract();
-                    c.setContractNumber("CN-" + System.currentTimeMillis());
+                    // номер уникален (uk_lease_contract_number): время + id заявки
+                    c.setContractNumber("CN-" + System.currentTimeMillis() + "-" + appId);
                     c.setContractDate(LocalDate.now());
                     c.setApplication(app);
 
@@ -98,6 +127,8 @@ public class LeaseContractController {
 
                     app.setStatus(LeaseApplication.Status.CONTRACTED);
                     appRepo.save(app);
+                    events.publishEvent(new LeaseApplicationEvent(
+                            LeaseApplicationEvent.Type.CONTRACTED, app.getId(), app.getCreatedDate()));
 
                     return "redirect:/contracts/" + c.getId();
                 });
@@ -106,24 +137,41 @@ public class LeaseContractController {
     // ----------------- list & view -----------------
 
     @GetMapping
-    public String list(Model model) {
+    public String list(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                       @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                       @RequestParam(value = "clientId", required = false) Long clientId,
+                       @ModelAttribute("pageForm") ListPageForm pageForm,
+                       Model model) {
+        Specification<LeaseContract> filter = (root, q, cb) -> {
+            List<Predicate> p = new ArrayList<>();
+            if (from != null) p.add(cb.greaterThanOrEqualTo(root.<LocalDate>get("contractDate"), from));
+            if (to != null) p.add(cb.lessThanOrEqualTo(root.<LocalDate>get("contractDate"), to));
+            if (clientId != null) p.add(cb.equal(root.get("application").get("client").get("id"), clientId));
+            return cb.and(p.toArray(new Predicate[0]));
+        };
+        KeysetPage<LeaseContract> page =
+                pager.page(LeaseContract.class, filter, pageForm.toRequest("id", "contractDate"),
+                        LeaseContract.GRAPH_PARTIES);
+
         model.addAttribute("active", "contracts");
-        model.addAttribute("contracts", contractRepo.findAll());
+        model.addAttribute("contracts", page.getItems());
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("clientId", clientId);
+        ListPages.addPager(model, page);
         return "contracts/list";
     }
 
     @GetMapping("/{id}")
     public String view(@PathVariable Long id, Model model) {
-        LeaseContract c = contractRepo.findById(id).orElseThrow(IllegalArgumentException::new);
+        // договор, график и платежи читаются один раз; план/факт и графики считаются по ним же
+        ContractViewService.ContractView v = contractViews.load(id, LocalDate.now());
 
         model.addAttribute("active", "contracts");
-        model.addAttribute("contract", c);
-        model.addAttribute("app", c.getApplication());
-        model.addAttribute("schedule", scheduleRepo.findByApplicationIdOrderByPaymentNoAsc(c.getApplication().getId()));
-
-        // фактические платежи
-        List<ActualPayment> payments = paymentRepo.findByContractIdOrderByPaymentDateAsc(c.getId());
-        model.addAttribute("payments", payments);
+        model.addAttribute("contract", v.getContract());
+        model.addAttribute("app", v.getApplication());
+        model.addAttribute("schedule", v.getSchedule());
+        model.addAttribute("payments", v.getPayments());
 
         // форма по умолчанию
         ActualPaymentForm form = new ActualPaymentForm();
@@ -131,18 +179,13 @@ public class LeaseContractController {
         model.addAttribute("paymentForm", form);
 
         // план/факт на сегодня
-        LocalDate today = LocalDate.now();
-        BigDecimal planned = analytics.plannedPaidUpTo(c.getApplication().getId(), today);
-        BigDecimal paid = analytics.actuallyPaidUpTo(c.getId(), today);
+        model.addAttribute("plannedToDate", v.getPlannedToDate());
+        model.addAttribute("paidToDate", v.getPaidToDate());
+        model.addAttribute("arrearsToDate", v.getArrearsToDate());
+        model.addAttribute("overpaidToDate", v.getOverpaidToDate());
 
-        BigDecimal diff = planned.subtract(paid);
-        BigDecimal arrears = diff.compareTo(BigDecimal.ZERO) > 0 ? diff : BigDecimal.ZERO;
-        BigDecimal overpaid = diff.compareTo(BigDecimal.ZERO) < 0 ? diff.abs() : BigDecimal.ZERO;
-
-        model.addAttribute("plannedToDate", planned);
-        model.addAttribute("paidToDate", paid);
-        model.addAttribute("arrearsToDate", arrears);
-        model.addAttribute("overpaidToDate", overpaid);
+        // данные графиков отдаются вместе со страницей, без второго запроса
+        model.addAttribute("chartData", v.chartData());
 
         return "contracts/view";
     }
@@ -163,62 +206,62 @@ public class LeaseContractController {
         p.setAmount(form.getAmount());
         p.setComment(form.getComment());
 
-        paymentRepo.save(p);
+        rollups.write(() -> {
+            paymentRepo.save(p);
+            events.publishEvent(new PaymentRecordedEvent(c.getId(), p.getPaymentDate(), p.getAmount()));
+            return p;
+        });
         return "redirect:/contracts/" + id;
     }
 
+    /**
+     * Импорт выписки: тело запроса — CSV (contractNumber;paymentDate;amount[;comment]),
+     * ответ — CSV-отчёт по строкам (line;status;message), пишется по мере обработки.
+     * curl --data-binary @bank.csv -H "Content-Type: text/csv" .../contracts/payments/import
+     */
+    @PostMapping(value = "/payments/import", consumes = {"text/csv", "text/plain"})
+    public void importPayments(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Charset cs = request.getCharacterEncoding() != null
+                ? Charset.forName(request.getCharacterEncoding())
+                : StandardCharsets.UTF_8;
+
+        response.setContentType("text/csv");
+        response.setCharacterEncoding("UTF-8");
+        final Writer out = response.getWriter();
+        out.write("line;status;message\n");
+
+        PaymentImportService.Summary summary = importService.importCsv(
+                new BufferedReader(new InputStreamReader(request.getInputStream(), cs)),
+                new PaymentImportService.ReportWriter() {
+                    @Override
+                    public void line(long lineNo, boolean accepted, String message) throws IOException {
+                        // в сообщении — номер договора и поля из загруженного файла
+                        out.write(lineNo + ";" + (accepted ? "ACCEPTED" : "REJECTED") + ";" + Csv.field(message) + "\n");
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        out.flush();
+                    }
+                });
+
+        out.write("# accepted=" + summary.getAccepted() + ";rejected=" + summary.getRejected() + "\n");
+        out.flush();
+    }
+
     // ----------------- chart data -----------------
 
     @GetMapping("/{id}/chart-data")
     @ResponseBody
     public Map<String, Object> chartData(@PathVariable Long id) {
-        LeaseContract c = contractRepo.findById(id).orElseThrow(IllegalArgumentException::new);
-        Long appId = c.getApplication().getId();
-
-        List<PaymentScheduleItem> plan = scheduleRepo.findByApplicationIdOrderByPaymentNoAsc(appId);
-        List<ActualPayment> facts = paymentRepo.findByContractIdOrderByPaymentDateAsc(id);
-
-        List<String> labels = new ArrayList<>();
-        List<BigDecimal> plannedCum = new ArrayList<>();
-        List<BigDecimal> paidCum = new ArrayList<>();
-        List<BigDecimal> arrears = new ArrayList<>();
-
-        BigDecimal planSum = BigDecimal.ZERO;
-        BigDecimal paidSum = BigDecimal.ZERO;
-
-        int fi = 0;
-
-        for (PaymentScheduleItem p : plan) {
-            labels.add(p.getDueDate() != null ? p.getDueDate().toString() : "");
-
-            planSum = planSum.add(nvl(p.getPaymentTotal()));
-            plannedCum.add(planSum);
-
-            while (fi < facts.size()
-                    && facts.get(fi).getPaymentDate() != null
-                    && p.getDueDate() != null
-                    && !facts.get(fi).getPaymentDate().isAfter(p.getDueDate())) {
-                paidSum = paidSum.add(nvl(facts.get(fi).getAmount()));
-                fi++;
-            }
-            paidCum.add(paidSum);
-
-            arrears.add(planSum.subtract(paidSum));
-        }
-
-        Map<String, Object> res = new HashMap<>();
-        res.put("labels", labels);
-        res.put("plannedCum", plannedCum);
-        res.put("paidCum", paidCum);
-        res.put("arrears", arrears);
-        return res;
+        return contractViews.load(id, LocalDate.now()).chartData();
     }
 
     // ----------------- print (old) -----------------
 
     @GetMapping("/{id}/print")
     public String print(@PathVariable Long id, Model model) {
-        LeaseContract c = contractRepo.findById(id).orElseThrow(IllegalArgumentException::new);
+        LeaseContract c = contractRepo.findWithPartiesById(id).orElseThrow(IllegalArgumentException::new);
 
         model.addAttribute("active", "contracts");
         model.addAttribute("companySignerName", "Петров П.П.");
@@ -226,7 +269,7 @@ public class LeaseContractController {
 
         model.addAttribute("contract", c);
         model.addAttribute("app", c.getApplication());
-        model.addAttribute("schedule", scheduleRepo.findByApplicationIdOrderByPaymentNoAsc(c.getApplication().getId()));
+        model.addAttribute("schedule", schedules.scheduleFor(c.getApplication()));
         return "contracts/print";
     }
 
@@ -234,7 +277,7 @@ public class LeaseContractController {
 
     @GetMapping("/{id}/print-purchase")
     public String printPurchase(@PathVariable Long id, Model model) {
-        LeaseContract c = contractRepo.findById(id).orElseThrow(IllegalArgumentException::new);
+        LeaseContract c = contractRepo.findForPrintById(id).orElseThrow(IllegalArgumentException::new);
 
         model.addAttribute("active", "contracts");
         model.addAttribute("contract", c);
@@ -252,7 +295,7 @@ public class LeaseContractController {
 
     @GetMapping("/{id}/print-lease")
     public String printLease(@PathVariable Long id, Model model) {
-        LeaseContract c = contractRepo.findById(id).orElseThrow(IllegalArgumentException::new);
+        LeaseContract c = contractRepo.findForPrintById(id).orElseThrow(IllegalArgumentException::new);
         LeaseApplication app = c.getApplication();
         LeasedAsset asset = app != null ? app.getAsset() : null;
 
@@ -312,14 +355,13 @@ public class LeaseContractController {
 
     @GetMapping("/{id}/print-schedule")
     public String printSchedule(@PathVariable Long id, Model model) {
-        LeaseContract c = contractRepo.findById(id).orElseThrow(IllegalArgumentException::new);
-        Long appId = c.getApplication().getId();
+        LeaseContract c = contractRepo.findWithPartiesById(id).orElseThrow(IllegalArgumentException::new);
 
         model.addAttribute("active", "contracts");
         model.addAttribute("contract", c);
         model.addAttribute("app", c.getApplication());
 
-        List<PaymentScheduleItem> rows = scheduleRepo.findByApplicationIdOrderByPaymentNoAsc(appId);
+        List<PaymentScheduleItem> rows = schedules.scheduleFor(c.getApplication());
         model.addAttribute("schedule", rows);
 
         BigDecimal total = BigDecimal.ZERO;
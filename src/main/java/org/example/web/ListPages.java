@@ -0,0 +1,41 @@
+package org.example.web;
+
+import org.example.repo.KeysetPage;
+import org.springframework.ui.Model;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Map;
+
+/** Ссылки keyset-пагинации для шаблонов (fragments/pager) */
+final class ListPages {
+
+    private ListPages() {
+    }
+
+    static void addPager(Model model, KeysetPage<?> page) {
+        model.addAttribute("page", page);
+        model.addAttribute("firstUrl", currentUrl(null, null));
+        if (page.isHasNext()) {
+            model.addAttribute("nextUrl", currentUrl(page.getNextAfterId(), page.getNextAfterValue()));
+        }
+    }
+
+    // текущий запрос с заменённым курсором; фильтры и сортировка сохраняются
+    private static String currentUrl(Long after, String afterValue) {
+        HttpServletRequest request =
+                ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+
+        UriComponentsBuilder b = UriComponentsBuilder.fromPath(request.getRequestURI());
+        for (Map.Entry<String, String[]> e : request.getParameterMap().entrySet()) {
+            if ("after".equals(e.getKey()) || "afterValue".equals(e.getKey())) continue;
+            b.queryParam(e.getKey(), Arrays.asList(e.getValue()).toArray());
+        }
+        if (after != null) b.queryParam("after", after);
+        if (afterValue != null) b.queryParam("afterValue", afterValue);
+        return b.encode().build().toUriString();
+    }
+}
@@ -1,34 +1,77 @@
 package org.example.web;
 
+import io.micrometer.core.annotation.Timed;
+import org.example.config.SqlStatementStats;
 import org.example.domain.LeaseApplication;
 import org.example.domain.LeaseContract;
-import org.example.domain.ActualPayment;
 import org.example.repo.LeaseApplicationRepository;
 import org.example.repo.LeaseContractRepository;
 import org.example.repo.ActualPaymentRepository;
+import org.example.service.DashboardRollupService;
+import org.example.service.PortfolioArrearsService;
+import org.example.service.ScheduleExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 @Controller
 @RequestMapping("/reports")
+@Timed(value = "leasing.reports", histogram = true)
 public class ReportController {
 
+    private static final Logger log = LoggerFactory.getLogger(ReportController.class);
+
+    private static final int TASK_QUEUE = 64;
+
     private final LeaseApplicationRepository appRepo;
     private final LeaseContractRepository contractRepo;
     private final ActualPaymentRepository paymentRepo;
+    private final PortfolioArrearsService arrearsService;
+    private final DashboardRollupService rollups;
+    private final DashboardDataCache cache;
+    private final ScheduleExportService exportService;
+
+    // KPI и серии дашборда считаются параллельно; очередь ограничена,
+    // при переполнении задача выполняется в потоке запроса
+    private final ThreadPoolExecutor pool;
 
     public ReportController(LeaseApplicationRepository appRepo,
                             LeaseContractRepository contractRepo,
-                            ActualPaymentRepository paymentRepo) {
+                            ActualPaymentRepository paymentRepo,
+                            PortfolioArrearsService arrearsService,
+                            DashboardRollupService rollups,
+                            DashboardDataCache cache,
+                            ScheduleExportService exportService,
+                            @Value("${leasing.reports.threads:4}") int threads) {
         this.appRepo = appRepo;
         this.contractRepo = contractRepo;
         this.paymentRepo = paymentRepo;
+        this.arrearsService = arrearsService;
+        this.rollups = rollups;
+        this.cache = cache;
+        this.exportService = exportService;
+        this.pool = newPool(Math.max(1, threads));
     }
 
     public enum Period {
@@ -54,17 +97,36 @@ public class ReportController {
     public Map<String, Object> dashboardData(
             @RequestParam(value = "period", required = false) Period period
     ) {
-        if (period == null) period = Period.MONTH;
+        final Period p = period == null ? Period.MONTH : period;
+        return cache.get(p, () -> computeDashboardData(p));
+    }
+
+    private Map<String, Object> computeDashboardData(final Period period) {
+        long t0 = System.nanoTime();
+        Map<String, Long> timings = new ConcurrentHashMap<String, Long>();
+
+        // независимые выборки — параллельно на пуле отчётов
+        CompletableFuture<Map<LeaseApplication.Status, Long>> byStatusF =
+                submit("appsByStatus", timings, this::countAppsByStatus);
+        CompletableFuture<Long> contractsF = submit("contractsTotal", timings, contractRepo::count);
+        CompletableFuture<BigDecimal> paidTotalF = submit("paidTotal", timings, paymentRepo::sumAmount);
+        CompletableFuture<LinkedHashMap<String, Integer>> appsSeriesF =
+                submit("appsSeries", timings, () -> buildAppsSeries(period));
+        CompletableFuture<LinkedHashMap<String, BigDecimal>> paidSeriesF =
+                submit("paidSeries", timings, () -> buildPaidSeries(period));
 
         // --- KPI ---
-        long appsTotal = appRepo.count();
-        long contractsTotal = contractRepo.count();
+        Map<LeaseApplication.Status, Long> byStatus = await(byStatusF);
+        long appsTotal = 0;
+        for (Long cnt : byStatus.values()) appsTotal += cnt;
 
-        long appsNew = countAppsByStatus("NEW");
-        long appsApproved = countAppsByStatus("APPROVED");
-        long appsRejected = countAppsByStatus("REJECTED");
+        long contractsTotal = await(contractsF);
 
-        BigDecimal paidTotal = sumAllPayments();
+        long appsNew = nvl(byStatus.get(LeaseApplication.Status.NEW));
+        long appsApproved = nvl(byStatus.get(LeaseApplication.Status.APPROVED));
+        long appsRejected = nvl(byStatus.get(LeaseApplication.Status.REJECTED));
+
+        BigDecimal paidTotal = await(paidTotalF);
 
         Map<String, Object> kpi = new HashMap<String, Object>();
         kpi.put("appsTotal", appsTotal);
@@ -74,19 +136,9 @@ public class ReportController {
         kpi.put("contractsTotal", contractsTotal);
         kpi.put("paidTotal", paidTotal);
 
-        // --- series ---
-        int window = defaultWindow(period);
-
-        LinkedHashMap<String, Integer> appsSeriesRaw = buildAppsSeries(period);
-        LinkedHashMap<String, BigDecimal> paidSeriesRaw = buildPaidSeries(period);
-
-        // заполним окнами (последние N периодов) чтобы график не "ломался"
-        LinkedHashMap<String, Integer> appsSeriesFilled = fillLastPeriodsInt(appsSeriesRaw, period, window);
-        LinkedHashMap<String, BigDecimal> paidSeriesFilled = fillLastPeriodsMoney(paidSeriesRaw, period, window);
-
-        // в JSON
-        Map<String, Object> appsSeries = toSeriesInt(appsSeriesFilled);
-        Map<String, Object> paidSeries = toSeriesMoney(paidSeriesFilled);
+        // --- series (последние N периодов, пустые периоды = 0) ---
+        Map<String, Object> appsSeries = toSeriesInt(await(appsSeriesF));
+        Map<String, Object> paidSeries = toSeriesMoney(await(paidSeriesF));
 
         Map<String, Object> res = new HashMap<String, Object>();
         res.put("period", period.name());
@@ -100,66 +152,197 @@ public class ReportController {
         res.put("appsByMonth", appsSeries);
         res.put("paidByMonth", paidSeries);
 
+        log.debug("dashboard-data {}: {} ms total, tasks (ms) {}",
+                period, (System.nanoTime() - t0) / 1000000L, new TreeMap<String, Long>(timings));
         return res;
     }
 
-    // ====== helpers (KPI) ======
+    // ====== arrears (весь портфель) ======
+    @GetMapping("/arrears")
+    @ResponseBody
+    public Map<String, Object> arrears(
+            @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        if (date == null) date = LocalDate.now();
+
+        final List<PortfolioArrearsService.ContractArrears> overdue = new ArrayList<PortfolioArrearsService.ContractArrears>();
+        final BigDecimal[] arrearsTotal = {BigDecimal.ZERO};
+
+        long scanned = arrearsService.scan(date, a -> {
+            if (a.getOverdueCount() > 0) {
+                overdue.add(a);
+                arrearsTotal[0] = arrearsTotal[0].add(a.getArrears());
+            }
+        });
+
+        Map<String, Object> res = new HashMap<String, Object>();
+        res.put("date", date.toString());
+        res.put("contracts", scanned);
+        res.put("overdueContracts", overdue.size());
+        res.put("arrearsTotal", arrearsTotal[0]);
+        res.put("items", overdue);
+        return res;
+    }
+
+    // ====== export (BI) ======
+    // ответ без Content-Length — уходит чанками по мере чтения курсора
+    @GetMapping("/schedules/export.csv")
+    public void exportSchedules(HttpServletResponse response) throws IOException {
+        response.setContentType("text/csv");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"payment_schedules.csv\"");
+        exportService.writeCsv(response.getWriter());
+    }
 
-    private long countAppsByStatus(String statusName) {
-        Iterable<LeaseApplication> apps = appRepo.findAll();
-        long cnt = 0;
-        for (LeaseApplication a : apps) {
-            if (a.getStatus() != null && statusName.equals(a.getStatus().name())) {
-                cnt++;
+    // ====== helpers (report pool) ======
+
+    private static ThreadPoolExecutor newPool(int threads) {
+        final AtomicInteger seq = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "report-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(TASK_QUEUE), factory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Задача на пуле отчётов; время выполнения пишется в timings под именем name,
+     * SQL задачи засчитывается в запрос (см. SqlStatementStats)
+     */
+    private <T> CompletableFuture<T> submit(final String name, final Map<String, Long> timings, final Supplier<T> task) {
+        return CompletableFuture.supplyAsync(SqlStatementStats.propagate(() -> {
+            long t0 = System.nanoTime();
+            try {
+                return task.get();
+            } finally {
+                timings.put(name, (System.nanoTime() - t0) / 1000000L);
             }
+        }), pool);
+    }
+
+    private static <T> T await(CompletableFuture<T> f) {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Dashboard task failed", e.getCause());
         }
-        return cnt;
     }
 
-    private BigDecimal sumAllPayments() {
-        Iterable<ActualPayment> payments = paymentRepo.findAll();
-        BigDecimal sum = BigDecimal.ZERO;
-        for (ActualPayment p : payments) {
-            if (p.getAmount() != null) sum = sum.add(p.getAmount());
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    // ====== helpers (KPI) ======
+
+    /** Один GROUP BY по статусу вместо выборки всех заявок (ключ null — заявки без статуса) */
+    private Map<LeaseApplication.Status, Long> countAppsByStatus() {
+        Map<LeaseApplication.Status, Long> res = new HashMap<LeaseApplication.Status, Long>();
+        for (LeaseApplicationRepository.StatusCount sc : appRepo.countGroupedByStatus()) {
+            res.put(sc.getStatus(), sc.getCnt());
         }
-        return sum;
+        return res;
     }
 
-    // ====== helpers (series builders) ======
+    private long nvl(Long v) {
+        return v == null ? 0L : v;
+    }
 
-    private LinkedHashMap<String, Integer> buildAppsSeries(Period period) {
-        Iterable<LeaseApplication> apps = appRepo.findAll();
-        LinkedHashMap<String, Integer> map = new LinkedHashMap<String, Integer>();
+    // ====== helpers (series builders) ======
+    // серии собираются из дневных свёрток за окно — без чтения заявок и платежей
 
-        for (LeaseApplication a : apps) {
-            LocalDate d = a.getCreatedDate(); // <-- ты это поле уже используешь
-            if (d == null) continue;
+    LinkedHashMap<String, Integer> buildAppsSeries(Period period) {
+        LocalDate today = LocalDate.now();
+        int window = defaultWindow(period);
+        LocalDate from = windowStart(today, period, window);
 
-            String key = bucketKey(d, period);
-            Integer cur = map.get(key);
-            map.put(key, cur == null ? 1 : cur + 1);
+        long[] perDay = rollups.appsPerDay(from, windowEnd(today, period));
+        long[] buckets = new long[window];
+        for (int i = 0; i < perDay.length; i++) {
+            if (perDay[i] != 0) buckets[bucketIndex(from, from.plusDays(i), period)] += perDay[i];
         }
 
-        return sortSeriesInt(map, period);
+        LinkedHashMap<String, Integer> map = new LinkedHashMap<String, Integer>();
+        List<String> keys = lastKeys(today, period, window);
+        for (int i = 0; i < window; i++) {
+            map.put(keys.get(i), (int) buckets[i]);
+        }
+        return map;
     }
 
-    private LinkedHashMap<String, BigDecimal> buildPaidSeries(Period period) {
-        Iterable<ActualPayment> payments = paymentRepo.findAll();
+    LinkedHashMap<String, BigDecimal> buildPaidSeries(Period period) {
+        LocalDate today = LocalDate.now();
+        int window = defaultWindow(period);
+        LocalDate from = windowStart(today, period, window);
+
+        long[] perDay = rollups.paidCentsPerDay(from, windowEnd(today, period));
+        long[] buckets = new long[window];
+        boolean[] seen = new boolean[window];
+        for (int i = 0; i < perDay.length; i++) {
+            if (perDay[i] == 0) continue;
+            int b = bucketIndex(from, from.plusDays(i), period);
+            buckets[b] += perDay[i];
+            seen[b] = true;
+        }
+
         LinkedHashMap<String, BigDecimal> map = new LinkedHashMap<String, BigDecimal>();
+        List<String> keys = lastKeys(today, period, window);
+        for (int i = 0; i < window; i++) {
+            map.put(keys.get(i), seen[i] ? BigDecimal.valueOf(buckets[i], 2) : BigDecimal.ZERO);
+        }
+        return map;
+    }
 
-        for (ActualPayment p : payments) {
-            LocalDate d = p.getPaymentDate();
-            if (d == null) continue;
+    /** Первый день самого старого периода окна */
+    private LocalDate windowStart(LocalDate today, Period period, int window) {
+        if (period == Period.DAY) {
+            return today.minusDays(window - 1);
+        }
+        if (period == Period.MONTH) {
+            return today.withDayOfMonth(1).minusMonths(window - 1);
+        }
+        if (period == Period.QUARTER) {
+            int firstMonthOfQuarter = (today.getMonthValue() - 1) / 3 * 3 + 1;
+            return LocalDate.of(today.getYear(), firstMonthOfQuarter, 1).minusMonths(3L * (window - 1));
+        }
+        return LocalDate.of(today.getYear() - (window - 1), 1, 1); // YEAR
+    }
 
-            String key = bucketKey(d, period);
-            BigDecimal cur = map.get(key);
-            if (cur == null) cur = BigDecimal.ZERO;
+    /** Последний день текущего периода (в него попадают и даты позже сегодняшней) */
+    private LocalDate windowEnd(LocalDate today, Period period) {
+        if (period == Period.DAY) {
+            return today;
+        }
+        if (period == Period.MONTH) {
+            return today.withDayOfMonth(today.lengthOfMonth());
+        }
+        if (period == Period.QUARTER) {
+            int lastMonthOfQuarter = (today.getMonthValue() - 1) / 3 * 3 + 3;
+            LocalDate m = LocalDate.of(today.getYear(), lastMonthOfQuarter, 1);
+            return m.withDayOfMonth(m.lengthOfMonth());
+        }
+        return LocalDate.of(today.getYear(), 12, 31); // YEAR
+    }
 
-            BigDecimal add = (p.getAmount() == null) ? BigDecimal.ZERO : p.getAmount();
-            map.put(key, cur.add(add));
+    /** Номер периода окна, в который попадает день d (0 — самый старый) */
+    private int bucketIndex(LocalDate from, LocalDate d, Period period) {
+        if (period == Period.DAY) {
+            return (int) (d.toEpochDay() - from.toEpochDay());
+        }
+        if (period == Period.MONTH) {
+            return monthIndex(d) - monthIndex(from);
+        }
+        if (period == Period.QUARTER) {
+            return monthIndex(d) / 3 - monthIndex(from) / 3;
         }
+        return d.getYear() - from.getYear(); // YEAR
+    }
 
-        return sortSeriesMoney(map, period);
+    private int monthIndex(LocalDate d) {
+        return d.getYear() * 12 + d.getMonthValue() - 1;
     }
 
     // ====== bucketing ======
@@ -189,39 +372,7 @@ public class ReportController {
         return 5; // YEAR
     }
 
-    // ====== fill missing buckets ======
-
-    private LinkedHashMap<String, Integer> fillLastPeriodsInt(
-            LinkedHashMap<String, Integer> src,
-            Period period,
-            int window
-    ) {
-        LinkedHashMap<String, Integer> out = new LinkedHashMap<String, Integer>();
-        LocalDate today = LocalDate.now();
-
-        List<String> keys = lastKeys(today, period, window);
-        for (String k : keys) {
-            Integer v = src.get(k);
-            out.put(k, v == null ? 0 : v);
-        }
-        return out;
-    }
-
-    private LinkedHashMap<String, BigDecimal> fillLastPeriodsMoney(
-            LinkedHashMap<String, BigDecimal> src,
-            Period period,
-            int window
-    ) {
-        LinkedHashMap<String, BigDecimal> out = new LinkedHashMap<String, BigDecimal>();
-        LocalDate today = LocalDate.now();
-
-        List<String> keys = lastKeys(today, period, window);
-        for (String k : keys) {
-            BigDecimal v = src.get(k);
-            out.put(k, v == null ? BigDecimal.ZERO : v);
-        }
-        return out;
-    }
+    // ====== window keys ======
 
     private List<String> lastKeys(LocalDate today, Period period, int window) {
         List<String> keys = new ArrayList<String>();
@@ -270,77 +421,6 @@ public class ReportController {
         return keys;
     }
 
-    // ====== sorting ======
-
-    private LinkedHashMap<String, Integer> sortSeriesInt(LinkedHashMap<String, Integer> src, Period period) {
-        List<String> keys = new ArrayList<String>(src.keySet());
-        Collections.sort(keys, new Comparator<String>() {
-            @Override public int compare(String a, String b) {
-                return parseKeyToComparable(a, period).compareTo(parseKeyToComparable(b, period));
-            }
-        });
-
-        LinkedHashMap<String, Integer> res = new LinkedHashMap<String, Integer>();
-        for (String k : keys) res.put(k, src.get(k));
-        return res;
-    }
-
-    private LinkedHashMap<String, BigDecimal> sortSeriesMoney(LinkedHashMap<String, BigDecimal> src, Period period) {
-        List<String> keys = new ArrayList<String>(src.keySet());
-        Collections.sort(keys, new Comparator<String>() {
-            @Override public int compare(String a, String b) {
-                return parseKeyToComparable(a, period).compareTo(parseKeyToComparable(b, period));
-            }
-        });
-
-        LinkedHashMap<String, BigDecimal> res = new LinkedHashMap<String, BigDecimal>();
-        for (String k : keys) res.put(k, src.get(k));
-        return res;
-    }
-
-    private ComparableKey parseKeyToComparable(String k, Period period) {
-        // DAY: YYYY-MM-DD
-        // MONTH: YYYY-MM
-        // QUARTER: YYYY-Qn
-        // YEAR: YYYY
-        if (period == Period.DAY) {
-            String[] p = k.split("-");
-            return new ComparableKey(
-                    Integer.parseInt(p[0]),
-                    Integer.parseInt(p[1]),
-                    Integer.parseInt(p[2])
-            );
-        }
-        if (period == Period.MONTH) {
-            String[] p = k.split("-");
-            return new ComparableKey(
-                    Integer.parseInt(p[0]),
-                    Integer.parseInt(p[1]),
-                    1
-            );
-        }
-        if (period == Period.QUARTER) {
-            String[] p = k.split("-Q");
-            int y = Integer.parseInt(p[0]);
-            int q = Integer.parseInt(p[1]);
-            int m = (q - 1) * 3 + 1; // начало квартала как месяц для сортировки
-            return new ComparableKey(y, m, 1);
-        }
-        // YEAR
-        return new ComparableKey(Integer.parseInt(k), 1, 1);
-    }
-
-    static class ComparableKey implements Comparable<ComparableKey> {
-        int y, m, d;
-        ComparableKey(int y, int m, int d) { this.y = y; this.m = m; this.d = d; }
-
-        @Override public int compareTo(ComparableKey o) {
-            if (y != o.y) return y - o.y;
-            if (m != o.m) return m - o.m;
-            return d - o.d;
-        }
-    }
-
     // ====== toSeries ======
 
     private Map<String, Object> toSeriesInt(LinkedHashMap<String, Integer> map) {
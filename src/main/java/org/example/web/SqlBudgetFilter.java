@@ -0,0 +1,55 @@
+package org.example.web;
+
+import org.example.config.SqlStatementStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Сколько SQL выполнил HTTP-запрос: запросы сверх leasing.sql.statement-budget
+ * пишутся в лог WARN (число операторов, суммарное время, сколько из них медленных).
+ */
+@Component
+@ConditionalOnProperty(name = "leasing.sql.monitor.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlBudgetFilter.class);
+
+    private final int budget;
+
+    public SqlBudgetFilter(@Value("${leasing.sql.statement-budget:10}") int budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementStats.Scope sql = SqlStatementStats.open();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            sql.close();
+            report(request, sql);
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlStatementStats.Scope sql) {
+        int n = sql.getStatements();
+        if (n > budget) {
+            log.warn("{} {}: {} SQL statements in {} ms ({} slow), budget {}",
+                    request.getMethod(), request.getRequestURI(), n, sql.getMillis(), sql.getSlowStatements(), budget);
+        } else if (log.isDebugEnabled() && n > 0) {
+            log.debug("{} {}: {} SQL statements in {} ms",
+                    request.getMethod(), request.getRequestURI(), n, sql.getMillis());
+        }
+    }
+}
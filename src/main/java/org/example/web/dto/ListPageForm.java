@@ -0,0 +1,38 @@
+package org.example.web.dto;
+
+import org.example.repo.KeysetRequest;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Общие параметры списков: сортировка, направление, курсор keyset-пагинации, размер страницы */
+public class ListPageForm {
+    private String sort;
+    private String dir;        // asc / desc
+    private Long after;        // id последней строки предыдущей страницы
+    private String afterValue; // значение поля сортировки в этой строке
+    private Integer size;
+
+    public String getSort() { return sort; }
+    public void setSort(String sort) { this.sort = sort; }
+
+    public String getDir() { return dir; }
+    public void setDir(String dir) { this.dir = dir; }
+
+    public Long getAfter() { return after; }
+    public void setAfter(Long after) { this.after = after; }
+
+    public String getAfterValue() { return afterValue; }
+    public void setAfterValue(String afterValue) { this.afterValue = afterValue; }
+
+    public Integer getSize() { return size; }
+    public void setSize(Integer size) { this.size = size; }
+
+    /** Неизвестное поле сортировки заменяется первым из разрешённых */
+    public KeysetRequest toRequest(String... allowedSorts) {
+        List<String> allowed = Arrays.asList(allowedSorts);
+        String field = allowed.contains(sort) ? sort : allowedSorts[0];
+        sort = field;
+        return new KeysetRequest(field, "desc".equalsIgnoreCase(dir), after, afterValue, size);
+    }
+}
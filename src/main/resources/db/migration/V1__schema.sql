@@ -0,0 +1,127 @@
+-- Схема приложения (Hibernate её только проверяет: spring.jpa.hibernate.ddl-auto=validate).
+-- Изменения схемы — новыми файлами V<n>__*.sql, уже применённые миграции не редактируются.
+
+-- pooled-последовательности: шаг = allocationSize в PaymentScheduleItem / ActualPayment
+create sequence payment_schedule_item_seq start with 1 increment by 50;
+create sequence actual_payment_seq start with 1 increment by 50;
+
+create table supplier (
+    id bigint generated by default as identity,
+    name varchar(255),
+    inn varchar(255),
+    phone varchar(255),
+    email varchar(255),
+    primary key (id)
+);
+
+create table insurance_company (
+    id bigint generated by default as identity,
+    name varchar(255),
+    inn varchar(255),
+    phone varchar(255),
+    email varchar(255),
+    primary key (id)
+);
+
+create table client (
+    id bigint generated by default as identity,
+    name varchar(255),
+    client_type varchar(255),
+    identifier varchar(255),
+    phone varchar(255),
+    email varchar(255),
+    primary key (id)
+);
+
+create table leased_asset (
+    id bigint generated by default as identity,
+    asset_type varchar(255),
+    name varchar(255),
+    serial_number varchar(255),
+    price numeric(19,2),
+    supplier_id bigint,
+    insurer_id bigint,
+    primary key (id)
+);
+
+create table lease_application (
+    id bigint generated by default as identity,
+    application_number varchar(255),
+    created_date date,
+    client_id bigint,
+    asset_id bigint,
+    asset_price numeric(19,2),
+    advance_amount numeric(19,2),
+    financed_amount numeric(19,2),
+    term_months integer,
+    annual_rate_percent numeric(19,2),
+    start_date date,
+    status varchar(255),
+    rejection_reason varchar(500),
+    schedule_manual boolean,
+    primary key (id)
+);
+
+create table lease_contract (
+    id bigint generated by default as identity,
+    contract_number varchar(255),
+    contract_date date,
+    application_id bigint,
+    financed_amount numeric(19,2),
+    term_months integer,
+    annual_rate_percent numeric(19,2),
+    start_date date,
+    primary key (id),
+    -- уникальный индекс — он же поиск договора по заявке
+    constraint uk_lease_contract_application unique (application_id)
+);
+
+create table payment_schedule_item (
+    id bigint not null,
+    application_id bigint,
+    payment_no integer,
+    due_date date,
+    payment_total numeric(19,2),
+    payment_interest numeric(19,2),
+    payment_principal numeric(19,2),
+    balance_after numeric(19,2),
+    primary key (id)
+);
+
+create table actual_payment (
+    id bigint not null,
+    contract_id bigint,
+    payment_date date,
+    amount numeric(19,2),
+    comment varchar(200),
+    primary key (id)
+);
+
+-- списки (keyset-пагинация по полю сортировки + id)
+create index idx_client_name on client (name, id);
+create index idx_leased_asset_name on leased_asset (name, id);
+create index idx_leased_asset_price on leased_asset (price, id);
+create index idx_leased_asset_type on leased_asset (asset_type);
+create index idx_lease_contract_date on lease_contract (contract_date, id);
+
+-- заявки: по статусу (KPI, фильтр списка), по дате создания (серии, список), по клиенту и объекту
+create index idx_lease_application_status on lease_application (status, created_date);
+create index idx_lease_application_created on lease_application (created_date, id);
+create index idx_lease_application_client on lease_application (client_id);
+create index idx_lease_application_asset on lease_application (asset_id);
+
+create index idx_leased_asset_supplier on leased_asset (supplier_id);
+create index idx_leased_asset_insurer on leased_asset (insurer_id);
+
+-- график заявки (до 360 строк — сортируются в памяти), платежи договора по дате
+create index idx_payment_schedule_item_application on payment_schedule_item (application_id);
+create index idx_actual_payment_contract_date on actual_payment (contract_id, payment_date);
+
+-- внешние ключи — после индексов: H2 использует индекс с тем же ведущим столбцом, а не создаёт свой
+alter table leased_asset add constraint fk_leased_asset_supplier foreign key (supplier_id) references supplier;
+alter table leased_asset add constraint fk_leased_asset_insurer foreign key (insurer_id) references insurance_company;
+alter table lease_application add constraint fk_lease_application_client foreign key (client_id) references client;
+alter table lease_application add constraint fk_lease_application_asset foreign key (asset_id) references leased_asset;
+alter table lease_contract add constraint fk_lease_contract_application foreign key (application_id) references lease_application;
+alter table payment_schedule_item add constraint fk_payment_schedule_item_application foreign key (application_id) references lease_application;
+alter table actual_payment add constraint fk_actual_payment_contract foreign key (contract_id) references lease_contract;
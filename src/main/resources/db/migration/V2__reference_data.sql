@@ -1,3 +1,5 @@
+-- Справочники демо-набора (раньше — data.sql, выполнялся при каждом старте)
+
 -- Suppliers
 INSERT INTO SUPPLIER (NAME, INN, PHONE, EMAIL)
 VALUES ('Автосалон Север', '7701234567', '+7-900-111-22-33', 'north@dealer.ru');
@@ -0,0 +1,3 @@
+-- поиск договора по номеру (импорт выписок: contract_number IN (...) порциями до 1000);
+-- номер договора уникален. Отдельной миграцией: V1 уже применена в файловых БД (профиль file)
+create unique index uk_lease_contract_number on lease_contract (contract_number);
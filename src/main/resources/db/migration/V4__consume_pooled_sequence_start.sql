@@ -0,0 +1,5 @@
+-- pooled-оптимизатор Hibernate считает начальное значение (1) началом блока, который закрывает
+-- следующее прочитанное значение: прочитай кто-то другой (JDBC-вставки) значение между ними —
+-- блоки пересекутся. Начальные значения выбираем здесь, дальше любое значение v — блок [v - 49, v].
+select next value for payment_schedule_item_seq;
+select next value for actual_payment_seq;
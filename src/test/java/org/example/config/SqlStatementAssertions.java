@@ -0,0 +1,29 @@
+package org.example.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверки числа SQL-операторов в области {@link SqlStatementStats}.
+ *
+ * <pre>
+ * try (SqlStatementStats.Scope sql = SqlStatementStats.open()) {
+ *     mvc.perform(get("/contracts/1"));
+ *     SqlStatementAssertions.assertStatements(sql, 3);
+ * }
+ * </pre>
+ */
+public final class SqlStatementAssertions {
+
+    private SqlStatementAssertions() {
+    }
+
+    /** Ровно expected операторов с момента открытия области */
+    public static void assertStatements(SqlStatementStats.Scope scope, int expected) {
+        assertThat(scope.getStatements()).as("SQL statements").isEqualTo(expected);
+    }
+
+    /** Не больше max операторов с момента открытия области */
+    public static void assertAtMost(SqlStatementStats.Scope scope, int max) {
+        assertThat(scope.getStatements()).as("SQL statements").isLessThanOrEqualTo(max);
+    }
+}
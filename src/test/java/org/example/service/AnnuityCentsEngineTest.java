@@ -0,0 +1,128 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Копеечный расчёт обязан совпадать с эталонным BigDecimal-расчётом
+ * {@link LeasingCalculationService#computeAnnuitySchedule} до копейки в каждой строке.
+ */
+class AnnuityCentsEngineTest {
+
+    // максимальный срок в форме заявки
+    private static final int MAX_FORM_TERM = 120;
+
+    private final LeasingCalculationService calc = new LeasingCalculationService();
+
+    @Test
+    void randomSchedulesMatchBigDecimalPath() {
+        Random rnd = new Random(20240501L);
+        for (int i = 0; i < 2000; i++) {
+            long principal = 100 + (long) (rnd.nextDouble() * 50_000_000_00L);
+            int n = 1 + rnd.nextInt(MAX_FORM_TERM);
+            BigDecimal rate = BigDecimal.valueOf(rnd.nextInt(4000), 2);
+            assertSameSchedule(principal, n, rate);
+        }
+    }
+
+    @Test
+    void zeroRate() {
+        assertSameSchedule(100_000_00L, 36, BigDecimal.ZERO);
+        assertSameSchedule(100_000_01L, 7, new BigDecimal("0.00"));
+        assertSameSchedule(1L, 12, BigDecimal.ZERO);
+    }
+
+    @Test
+    void oneMonthTerm() {
+        assertSameSchedule(2_450_000_00L, 1, new BigDecimal("14.5"));
+        assertSameSchedule(99L, 1, new BigDecimal("99.99"));
+        assertSameSchedule(5_000_00L, 1, BigDecimal.ZERO);
+    }
+
+    @Test
+    void maximumTerm() {
+        assertSameSchedule(2_450_000_00L, MAX_FORM_TERM, new BigDecimal("14.5"));
+        assertSameSchedule(123_456_789_01L, MAX_FORM_TERM, new BigDecimal("0.01"));
+        assertSameSchedule(2_450_000_00L, QuoteGridService.MAX_TERM, new BigDecimal("100"));
+    }
+
+    @Test
+    void totalsAtMaxAmountAndMaxTermFitInLong() {
+        AnnuityCentsEngine.Schedule s = AnnuityCentsEngine.schedule(
+                AnnuityCentsEngine.MAX_CENTS, QuoteGridService.MAX_TERM, new BigDecimal("1000"));
+        assertThat(s.totalPayments()).isEqualTo(s.totalInterest() + AnnuityCentsEngine.MAX_CENTS);
+    }
+
+    @Test
+    void lastPaymentMatchesSchedule() {
+        Random rnd = new Random(7L);
+        for (int i = 0; i < 500; i++) {
+            long principal = 100 + (long) (rnd.nextDouble() * 10_000_000_00L);
+            int n = 1 + rnd.nextInt(MAX_FORM_TERM);
+            AnnuityCentsEngine.Rate rate = AnnuityCentsEngine.Rate.ofAnnualPercent(BigDecimal.valueOf(rnd.nextInt(3000), 2));
+            AnnuityCentsEngine.Schedule s = AnnuityCentsEngine.schedule(principal, n, rate);
+
+            long payment = rate.paymentCents(principal, n);
+            assertThat(rate.paymentCents(principal, n, rate.annuityFactor(n))).isEqualTo(payment);
+            assertThat(AnnuityCentsEngine.lastPaymentCents(principal, n, rate, payment)).isEqualTo(s.total[n - 1]);
+        }
+    }
+
+    @Test
+    void outOfRangeIsIllegalArgument() {
+        AnnuityCentsEngine.Rate huge = AnnuityCentsEngine.Rate.ofAnnualPercent(new BigDecimal("1000000000"));
+        assertThatThrownBy(() -> AnnuityCentsEngine.schedule(AnnuityCentsEngine.MAX_CENTS, 360, huge))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AnnuityCentsEngine.schedule(AnnuityCentsEngine.MAX_CENTS + 1, 12, BigDecimal.TEN))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(AnnuityCentsEngine.toCentsExact(new BigDecimal("1e20"))).isNull();
+        assertThat(AnnuityCentsEngine.toCentsExact(AnnuityCentsEngine.fromCents(AnnuityCentsEngine.MAX_CENTS + 1))).isNull();
+
+        // платёж в пределах MAX_CENTS, но срок больше 600 месяцев: итог не помещается в long
+        AnnuityCentsEngine.Schedule longTerm = AnnuityCentsEngine.schedule(
+                AnnuityCentsEngine.MAX_CENTS / 2, 2000, new BigDecimal("1200"));
+        assertThat(longTerm.total[0]).isLessThanOrEqualTo(AnnuityCentsEngine.MAX_CENTS);
+        assertThatThrownBy(longTerm::totalPayments).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(longTerm::totalInterest).isInstanceOf(IllegalArgumentException.class);
+
+        LeaseApplication app = application(AnnuityCentsEngine.MAX_CENTS, 12, new BigDecimal("1000000000"));
+        assertThatThrownBy(() -> calc.buildAnnuityScheduleCents(app)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertSameSchedule(long principalCents, int n, BigDecimal rate) {
+        List<PaymentScheduleItem> expected = calc.computeAnnuitySchedule(application(principalCents, n, rate));
+        AnnuityCentsEngine.Schedule actual = AnnuityCentsEngine.schedule(principalCents, n, rate);
+
+        assertThat(actual.n).isEqualTo(expected.size());
+        for (int i = 0; i < n; i++) {
+            PaymentScheduleItem row = expected.get(i);
+            String at = principalCents + " / " + n + " / " + rate + ", row " + (i + 1);
+            assertThat(actual.total[i]).as(at).isEqualTo(cents(row.getPaymentTotal()));
+            assertThat(actual.interest[i]).as(at).isEqualTo(cents(row.getPaymentInterest()));
+            assertThat(actual.principal[i]).as(at).isEqualTo(cents(row.getPaymentPrincipal()));
+            assertThat(actual.balanceAfter[i]).as(at).isEqualTo(cents(row.getBalanceAfter()));
+        }
+    }
+
+    private static LeaseApplication application(long principalCents, int n, BigDecimal rate) {
+        LeaseApplication app = new LeaseApplication();
+        app.setFinancedAmount(AnnuityCentsEngine.fromCents(principalCents));
+        app.setTermMonths(n);
+        app.setAnnualRatePercent(rate);
+        app.setStartDate(LocalDate.of(2025, 1, 15));
+        return app;
+    }
+
+    private static long cents(BigDecimal v) {
+        return v.movePointRight(2).longValueExact();
+    }
+}
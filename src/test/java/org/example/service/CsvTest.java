@@ -0,0 +1,31 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvTest {
+
+    @Test
+    void plainFieldsAreWrittenAsIs() {
+        assertThat(Csv.field("CN-DEMO-10000")).isEqualTo("CN-DEMO-10000");
+        assertThat(Csv.field("")).isEmpty();
+        assertThat(Csv.field(null)).isEmpty();
+    }
+
+    @Test
+    void separatorQuoteAndNewlineAreQuoted() {
+        assertThat(Csv.field("CN;1")).isEqualTo("\"CN;1\"");
+        assertThat(Csv.field("CN \"A\"")).isEqualTo("\"CN \"\"A\"\"\"");
+        assertThat(Csv.field("CN\n1")).isEqualTo("\"CN\n1\"");
+        assertThat(Csv.field("CN\r1")).isEqualTo("\"CN\r1\"");
+    }
+
+    @Test
+    void appendFieldKeepsBuilderContent() {
+        StringBuilder sb = new StringBuilder("1;");
+        Csv.appendField(sb, "a;b").append(';');
+        Csv.appendField(sb, null).append(';');
+        assertThat(sb.toString()).isEqualTo("1;\"a;b\";;");
+    }
+}
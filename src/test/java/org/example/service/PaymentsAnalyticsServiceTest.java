@@ -0,0 +1,71 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Плановая сумма к дате по параметрам заявки обязана совпадать
+ * с суммой наступивших строк полного графика.
+ */
+class PaymentsAnalyticsServiceTest {
+
+    private final LeasingCalculationService calc = new LeasingCalculationService();
+
+    // по параметрам: ни репозитории, ни ScheduleProvider не нужны
+    private final PaymentsAnalyticsService analytics = new PaymentsAnalyticsService(null, null, null);
+
+    @Test
+    void plannedFromParamsMatchesSchedule() {
+        Random rnd = new Random(20240612L);
+        for (int i = 0; i < 300; i++) {
+            LeaseApplication app = new LeaseApplication();
+            app.setFinancedAmount(BigDecimal.valueOf(100 + (long) (rnd.nextDouble() * 50_000_000_00L), 2));
+            app.setTermMonths(1 + rnd.nextInt(120));
+            app.setAnnualRatePercent(BigDecimal.valueOf(rnd.nextInt(4000), 2));
+            app.setStartDate(LocalDate.of(2020, 1, 1).plusDays(rnd.nextInt(365)));
+
+            List<PaymentScheduleItem> schedule = calc.computeAnnuitySchedule(app);
+            // до начала, по ходу графика (в т.ч. ровно в дату платежа), после конца
+            LocalDate last = schedule.get(schedule.size() - 1).getDueDate();
+            LocalDate[] dates = {
+                    app.getStartDate().minusDays(1),
+                    app.getStartDate().plusDays(rnd.nextInt(app.getTermMonths() * 31)),
+                    schedule.get(rnd.nextInt(schedule.size())).getDueDate(),
+                    last,
+                    last.plusYears(1)
+            };
+            for (LocalDate date : dates) {
+                assertThat(analytics.plannedPaidUpTo(app, date))
+                        .as(app.getFinancedAmount() + " / " + app.getTermMonths() + " / " + app.getAnnualRatePercent() + " at " + date)
+                        .isEqualByComparingTo(sumDue(schedule, date));
+            }
+        }
+    }
+
+    @Test
+    void installmentsDueAtMonthEnds() {
+        LocalDate start = LocalDate.of(2024, 1, 31);
+        // 29.02, 31.03, 30.04 ...
+        assertThat(PaymentsAnalyticsService.installmentsDue(start, 12, LocalDate.of(2024, 2, 28))).isEqualTo(0);
+        assertThat(PaymentsAnalyticsService.installmentsDue(start, 12, LocalDate.of(2024, 2, 29))).isEqualTo(1);
+        assertThat(PaymentsAnalyticsService.installmentsDue(start, 12, LocalDate.of(2024, 4, 29))).isEqualTo(2);
+        assertThat(PaymentsAnalyticsService.installmentsDue(start, 12, LocalDate.of(2024, 4, 30))).isEqualTo(3);
+        assertThat(PaymentsAnalyticsService.installmentsDue(start, 12, LocalDate.of(2030, 1, 1))).isEqualTo(12);
+    }
+
+    private static BigDecimal sumDue(List<PaymentScheduleItem> schedule, LocalDate date) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (PaymentScheduleItem p : schedule) {
+            if (!p.getDueDate().isAfter(date)) sum = sum.add(p.getPaymentTotal());
+        }
+        return sum;
+    }
+}
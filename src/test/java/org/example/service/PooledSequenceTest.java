@@ -0,0 +1,45 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Блоки id совпадают с pooled-оптимизатором Hibernate (allocationSize = 50) */
+class PooledSequenceTest {
+
+    @Test
+    void initialValueOpensBlockClosedByNextValue() {
+        PooledSequence ids = new PooledSequence(sequence(1L, 51L, 101L), "seq", 50);
+
+        for (long id = 1; id <= 101; id++) {
+            assertThat(ids.nextId()).isEqualTo(id);
+        }
+    }
+
+    @Test
+    void laterValueClosesBlock() {
+        PooledSequence ids = new PooledSequence(sequence(51L, 151L), "seq", 50);
+
+        for (long id = 2; id <= 51; id++) {
+            assertThat(ids.nextId()).isEqualTo(id);
+        }
+        // блок 52..101 забрал кто-то другой
+        assertThat(ids.nextId()).isEqualTo(102);
+    }
+
+    private static JdbcTemplate sequence(Long... values) {
+        final Deque<Long> next = new ArrayDeque<Long>(Arrays.asList(values));
+        return new JdbcTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T queryForObject(String sql, Class<T> requiredType) {
+                return (T) next.removeFirst();
+            }
+        };
+    }
+}
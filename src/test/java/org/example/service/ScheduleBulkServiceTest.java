@@ -0,0 +1,80 @@
+package org.example.service;
+
+import org.example.domain.LeaseApplication;
+import org.example.domain.PaymentScheduleItem;
+import org.example.repo.LeaseApplicationRepository;
+import org.example.repo.PaymentScheduleItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Массовый пересчёт даёт тот же график, что и пересчёт одной заявки,
+ * в том числе для сумм вне копеечного расчёта.
+ */
+@SpringBootTest
+class ScheduleBulkServiceTest {
+
+    @Autowired
+    private ScheduleBulkService bulk;
+
+    @Autowired
+    private LeasingCalculationService calc;
+
+    @Autowired
+    private LeaseApplicationRepository appRepo;
+
+    @Autowired
+    private PaymentScheduleItemRepository scheduleRepo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private long appId;
+    private BigDecimal originalAmount;
+
+    @BeforeEach
+    void pickApplication() {
+        appId = jdbc.queryForObject(
+                "select min(id) from lease_application where coalesce(schedule_manual, false) = false", Long.class);
+        originalAmount = jdbc.queryForObject(
+                "select financed_amount from lease_application where id = ?", BigDecimal.class, appId);
+    }
+
+    @AfterEach
+    void restore() {
+        jdbc.update("update lease_application set financed_amount = ? where id = ?", originalAmount, appId);
+        bulk.rebuildSchedules(Collections.singletonList(appId), null);
+    }
+
+    @Test
+    void amountAboveMaxCentsIsRebuiltLikeSingleApplication() {
+        BigDecimal huge = AnnuityCentsEngine.fromCents(AnnuityCentsEngine.MAX_CENTS).add(BigDecimal.ONE);
+        jdbc.update("update lease_application set financed_amount = ? where id = ?", huge, appId);
+
+        ScheduleBulkService.Result res = bulk.rebuildSchedules(Collections.singletonList(appId), null);
+
+        assertThat(res.getFailed()).isZero();
+        assertThat(res.getApplications()).isEqualTo(1);
+
+        LeaseApplication app = appRepo.findById(appId).orElseThrow(IllegalStateException::new);
+        List<PaymentScheduleItem> expected = calc.computeAnnuitySchedule(app);
+        List<PaymentScheduleItem> stored = scheduleRepo.findByApplicationIdOrderByPaymentNoAsc(appId);
+
+        assertThat(stored).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(stored.get(i).getDueDate()).isEqualTo(expected.get(i).getDueDate());
+            assertThat(stored.get(i).getPaymentTotal()).isEqualByComparingTo(expected.get(i).getPaymentTotal());
+            assertThat(stored.get(i).getBalanceAfter()).isEqualByComparingTo(expected.get(i).getBalanceAfter());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.web;
+
+import org.example.config.SqlStatementStats;
+import org.example.repo.KeysetRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.example.config.SqlStatementAssertions.assertStatements;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Число SQL-операторов на страницу постоянно: стороны договора и заявки
+ * приходят графами сущностей, а не ленивыми прокси по одному.
+ * Если число выросло — где-то в шаблоне снова пошли ленивые загрузки.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class PageSqlStatementsTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private long contractId;
+    private long applicationId;
+
+    @BeforeEach
+    void ids() {
+        contractId = jdbc.queryForObject("select min(id) from lease_contract", Long.class);
+        applicationId = jdbc.queryForObject(
+                "select application_id from lease_contract where id = ?", Long.class, contractId);
+    }
+
+    @Test
+    void contractView() throws Exception {
+        // договор со сторонами, график, платежи
+        assertStatements(perform("/contracts/" + contractId).sql, 3);
+    }
+
+    @Test
+    void printPages() throws Exception {
+        assertStatements(perform("/contracts/" + contractId + "/print").sql, 2);
+        assertStatements(perform("/contracts/" + contractId + "/print-purchase").sql, 1);
+        assertStatements(perform("/contracts/" + contractId + "/print-lease").sql, 1);
+        assertStatements(perform("/contracts/" + contractId + "/print-schedule").sql, 2);
+        assertStatements(perform("/applications/" + applicationId + "/print").sql, 2);
+    }
+
+    @Test
+    void applicationsList() throws Exception {
+        assertListPage("/applications", 1);
+    }
+
+    @Test
+    void contractsList() throws Exception {
+        assertListPage("/contracts", 1);
+    }
+
+    @Test
+    void clientsList() throws Exception {
+        assertListPage("/clients", 1);
+    }
+
+    @Test
+    void assetsList() throws Exception {
+        // страница + справочник поставщиков для фильтра
+        assertListPage("/assets", 2);
+    }
+
+    @Test
+    void suppliersList() throws Exception {
+        assertStatements(perform("/suppliers").sql, 1);
+    }
+
+    @Test
+    void insurersList() throws Exception {
+        assertStatements(perform("/insurers").sql, 1);
+    }
+
+    // первая страница из одной строки, следующая по курсору и полная страница стоят одинаково
+    private void assertListPage(String url, int expected) throws Exception {
+        Page first = perform(url + "?size=1");
+        assertStatements(first.sql, expected);
+        assertThat(first.nextUrl).as("next page of " + url).isNotNull();
+
+        assertStatements(perform(first.nextUrl).sql, expected);
+        assertStatements(perform(url + "?size=" + KeysetRequest.MAX_SIZE).sql, expected);
+    }
+
+    private Page perform(String url) throws Exception {
+        SqlStatementStats.Scope sql = SqlStatementStats.open();
+        MvcResult result;
+        try {
+            result = mvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+        } finally {
+            sql.close();
+        }
+        Object next = result.getModelAndView() == null ? null : result.getModelAndView().getModel().get("nextUrl");
+        return new Page(sql, (String) next);
+    }
+
+    private static final class Page {
+        final SqlStatementStats.Scope sql;
+        final String nextUrl;
+
+        Page(SqlStatementStats.Scope sql, String nextUrl) {
+            this.sql = sql;
+            this.nextUrl = nextUrl;
+        }
+    }
+}